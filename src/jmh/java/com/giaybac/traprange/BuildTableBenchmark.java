@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Range;
+
+/**
+ * Table assembly only (buildTable/buildRow): glyphs and trap-ranges of all
+ * pages of _Docs/sample-N.pdf are captured once in setUp()
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class BuildTableBenchmark {
+
+	private List<Range<Integer>> columnRanges;
+	private final PDFTableExtractor extractor = new PDFTableExtractor();
+	private final List<List<Range<Integer>>> lineRanges = new ArrayList<>();
+	private final List<GlyphBuffer> pages = new ArrayList<>();
+	@Param({ "1", "2", "3", "4", "5" })
+	private int sample;
+
+	@Benchmark
+	public void buildTables(final Blackhole blackhole) {
+		for (int pageIdx = 0; pageIdx < this.pages.size(); pageIdx++) {
+			blackhole.consume(this.extractor.buildTable(pageIdx, this.pages.get(pageIdx),
+					this.lineRanges.get(pageIdx), this.columnRanges));
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		TrapRangeBuilder columnTrapRangeBuilder = new TrapRangeBuilder();
+		try (PDDocument document = PDDocument
+				.load(Paths.get(System.getProperty("user.dir"), "_Docs", "sample-" + this.sample + ".pdf").toFile())) {
+			List<Integer> pageIds = new ArrayList<>();
+			for (int pageId = 0; pageId < document.getNumberOfPages(); pageId++) {
+				pageIds.add(pageId);
+			}
+			GlyphCaptureEngine extractor = new GlyphCaptureEngine(document);
+			PageCursor pageCursor = new PageCursor(document);
+			for (int pageId : pageIds) {
+				GlyphBuffer glyphs = extractor.extract(pageId, pageCursor.get(pageId));
+				if (glyphs == null) {
+					continue;
+				}
+				TrapRangeBuilder lineTrapRangeBuilder = new TrapRangeBuilder();
+				for (int idx = 0; idx < glyphs.size(); idx++) {
+					lineTrapRangeBuilder.addRange((int) glyphs.getY(idx),
+							(int) (glyphs.getY(idx) + glyphs.getHeight(idx)));
+					columnTrapRangeBuilder.addRange((int) glyphs.getX(idx),
+							(int) (glyphs.getX(idx) + glyphs.getWidth(idx)));
+				}
+				this.pages.add(glyphs);
+				this.lineRanges.add(lineTrapRangeBuilder.build());
+			}
+		}
+		this.columnRanges = columnTrapRangeBuilder.build();
+	}
+}
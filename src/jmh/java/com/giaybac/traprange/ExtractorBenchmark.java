@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * PDFTableExtractor.extract() end-to-end on _Docs/sample-N.pdf: loading,
+ * stripping, trap-ranges and table assembly
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class ExtractorBenchmark {
+
+	@Param({ "false", "true" })
+	private boolean glyphOnlyCapture;
+	private Path path;
+	@Param({ "1", "2", "3", "4", "5" })
+	private int sample;
+
+	@Benchmark
+	public List<Table> extract() {
+		return new PDFTableExtractor().setSource(this.path).setGlyphOnlyCapture(this.glyphOnlyCapture).extract();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.path = Paths.get(System.getProperty("user.dir"), "_Docs", "sample-" + this.sample + ".pdf");
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PDFLayoutTextStripper.getText() on _Docs/sample-N.pdf and the invoice sample,
+ * the document is loaded once in setUp()
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class LayoutTextStripperBenchmark {
+
+	private PDDocument document;
+	@Param({ "sample-1.pdf", "sample-2.pdf", "sample-3.pdf", "sample-4.pdf", "sample-5.pdf",
+			"invoice/sample-invoice.pdf" })
+	private String file;
+
+	@Benchmark
+	public String getText() throws IOException {
+		return new PDFLayoutTextStripper().getText(this.document);
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.document = PDDocument.load(Paths.get(System.getProperty("user.dir"), "_Docs", this.file).toFile());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.document.close();
+	}
+}
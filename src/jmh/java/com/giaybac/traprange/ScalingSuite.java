@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Time and peak heap of PDFTableExtractor against page count and glyphs per
+ * page, on documents written by SyntheticPdfGenerator into
+ * target/synthetic. Run with the jmh profile:
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.giaybac.traprange.ScalingSuite
+ * -Djmh.args="-pages 1000,10000,50000 -glyphs 2560,10240,25600 -modes
+ * extract,stream"
+ *
+ * Pages sweep uses the default grid (40 rows x 8 columns x 8 chars = 2560
+ * glyphs per page), glyphs sweep uses 50 pages. Peak heap is the sum of peak
+ * usages of heap pools, reset before each run
+ */
+public class ScalingSuite {
+	private static final int CELL_LENGTH = 8;
+	private static final int COLUMNS_COUNT = 8;
+	private static final int GLYPHS_SWEEP_PAGES = 50;
+
+	private static String getArg(final String[] args, final String name, final String defaultValue) {
+		for (int idx = 0; idx < args.length - 1; idx++) {
+			if (args[idx].equals("-" + name)) {
+				return args[idx + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	private static long getPeakHeap() {
+		long retVal = 0;
+		for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (memoryPool.getType() == MemoryType.HEAP) {
+				retVal += memoryPool.getPeakUsage().getUsed();
+			}
+		}
+		return retVal;
+	}
+
+	public static void main(final String[] args) throws IOException {
+		String[] modes = ScalingSuite.getArg(args, "modes", "extract,stream").split(",");
+		Path directory = Paths.get(System.getProperty("user.dir"), "target", "synthetic");
+		System.out.println(String.format("%-8s %8s %12s %8s %8s %10s %14s", "mode", "pages", "glyphs/page", "tables",
+				"columns", "time (ms)", "peak heap (MB)"));
+		for (String pagesCount : ScalingSuite.getArg(args, "pages", "1000,10000,50000").split(",")) {
+			SyntheticPdfGenerator generator = new SyntheticPdfGenerator().setPagesCount(Integer.parseInt(pagesCount));
+			ScalingSuite.run(generator, directory, modes);
+		}
+		for (String glyphsPerPage : ScalingSuite.getArg(args, "glyphs", "2560,10240,25600").split(",")) {
+			int rowsCount = Integer.parseInt(glyphsPerPage) / (ScalingSuite.COLUMNS_COUNT * ScalingSuite.CELL_LENGTH);
+			SyntheticPdfGenerator generator = new SyntheticPdfGenerator()
+					.setPagesCount(ScalingSuite.GLYPHS_SWEEP_PAGES).setRowsCount(rowsCount)
+					.setColumnsCount(ScalingSuite.COLUMNS_COUNT).setCellLength(ScalingSuite.CELL_LENGTH);
+			ScalingSuite.run(generator, directory, modes);
+		}
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (memoryPool.getType() == MemoryType.HEAP) {
+				memoryPool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static void run(final SyntheticPdfGenerator generator, final Path directory, final String[] modes)
+			throws IOException {
+		int pagesCount = generator.getPagesCount();
+		int glyphsPerPage = generator.getGlyphsPerPage();
+		Path path = directory.resolve("synthetic-" + pagesCount + "-" + glyphsPerPage + ".pdf");
+		if (!Files.exists(path)) {
+			generator.write(path);
+		}
+		for (String mode : modes) {
+			ScalingSuite.resetPeakHeap();
+			long start = System.nanoTime();
+			int tablesCount = 0;
+			int columnsCount = 0;
+			PDFTableExtractor extractor = new PDFTableExtractor().setSource(path);
+			if ("stream".equals(mode)) {
+				try (Stream<Table> tables = extractor.extractStream()) {
+					Iterator<Table> tableIterator = tables.iterator();
+					while (tableIterator.hasNext()) {
+						columnsCount = tableIterator.next().getColumnsCount();
+						tablesCount++;
+					}
+				}
+			} else {
+				List<Table> tables = extractor.extract();
+				tablesCount = tables.size();
+				columnsCount = tables.isEmpty() ? 0 : tables.get(0).getColumnsCount();
+			}
+			long time = (System.nanoTime() - start) / 1000000;
+			System.out.println(String.format("%-8s %8d %12d %8d %8d %10d %14d", mode, pagesCount, glyphsPerPage,
+					tablesCount, columnsCount, time, ScalingSuite.getPeakHeap() / (1024 * 1024)));
+		}
+	}
+}
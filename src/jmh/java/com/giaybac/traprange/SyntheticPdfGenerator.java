@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Writes tabular PDFs: every page has the same grid of rows x columns cells,
+ * each cell is a random word of cellLength chars. Noise lines are sentences
+ * spanning all columns above the table, like report headers.
+ *
+ * Only distinctPages content streams are generated, other pages share them, so
+ * documents of 50k pages are written quickly and stay small on disk
+ */
+public class SyntheticPdfGenerator {
+	private static final String CHARS = "abcdefghijklmnopqrstuvwxyz0123456789";
+	private static final float MARGIN = 36;
+
+	private int cellLength = 8;
+	private int columnsCount = 8;
+	private int distinctPages = 16;
+	private PDFont font = PDType1Font.HELVETICA;
+	private float fontSize = 8;
+	private int noiseLinesCount;
+	private int pagesCount = 1;
+	private int rowsCount = 40;
+	private long seed = 42;
+
+	private void addContent(final PDDocument document, final PDPage page, final Random random) throws IOException {
+		float rowHeight = this.fontSize * 1.5f;
+		float columnWidth = this.fontSize * this.cellLength + this.fontSize * 2;
+		float y = page.getMediaBox().getHeight() - SyntheticPdfGenerator.MARGIN - this.fontSize;
+		try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+			contentStream.setFont(this.font, this.fontSize);
+			for (int lineIdx = 0; lineIdx < this.noiseLinesCount; lineIdx++) {
+				StringBuilder line = new StringBuilder();
+				while (this.font.getStringWidth(line.toString()) / 1000 * this.fontSize < columnWidth
+						* this.columnsCount) {
+					line.append(this.createWord(random, 1 + random.nextInt(this.cellLength))).append(' ');
+				}
+				this.showText(contentStream, SyntheticPdfGenerator.MARGIN, y, line.toString().trim());
+				y -= rowHeight;
+			}
+			for (int rowIdx = 0; rowIdx < this.rowsCount; rowIdx++) {
+				for (int columnIdx = 0; columnIdx < this.columnsCount; columnIdx++) {
+					this.showText(contentStream, SyntheticPdfGenerator.MARGIN + columnIdx * columnWidth, y,
+							this.createWord(random, this.cellLength));
+				}
+				y -= rowHeight;
+			}
+		}
+	}
+
+	private String createWord(final Random random, final int length) {
+		char[] retVal = new char[length];
+		for (int idx = 0; idx < length; idx++) {
+			retVal[idx] = SyntheticPdfGenerator.CHARS.charAt(random.nextInt(SyntheticPdfGenerator.CHARS.length()));
+		}
+		return new String(retVal);
+	}
+
+	/**
+	 * Glyphs of the table on each page, noise lines excluded
+	 *
+	 * @return
+	 */
+	public int getGlyphsPerPage() {
+		return this.rowsCount * this.columnsCount * this.cellLength;
+	}
+
+	public int getPagesCount() {
+		return this.pagesCount;
+	}
+
+	private PDRectangle getPageSize() {
+		float width = SyntheticPdfGenerator.MARGIN * 2
+				+ (this.fontSize * this.cellLength + this.fontSize * 2) * this.columnsCount;
+		float height = SyntheticPdfGenerator.MARGIN * 2 + this.fontSize * 1.5f * (this.rowsCount + this.noiseLinesCount);
+		return new PDRectangle(Math.max(width, PDRectangle.A4.getWidth()), Math.max(height, PDRectangle.A4.getHeight()));
+	}
+
+	public SyntheticPdfGenerator setCellLength(final int cellLength) {
+		this.cellLength = cellLength;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setColumnsCount(final int columnsCount) {
+		this.columnsCount = columnsCount;
+		return this;
+	}
+
+	/**
+	 * Number of generated content streams, other pages reuse them in turn
+	 *
+	 * @param distinctPages
+	 * @return
+	 */
+	public SyntheticPdfGenerator setDistinctPages(final int distinctPages) {
+		this.distinctPages = distinctPages;
+		return this;
+	}
+
+	/**
+	 * One of the standard 14 fonts, e.g. PDType1Font.TIMES_ROMAN
+	 *
+	 * @param font
+	 * @return
+	 */
+	public SyntheticPdfGenerator setFont(final PDFont font) {
+		this.font = font;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setFontSize(final float fontSize) {
+		this.fontSize = fontSize;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setNoiseLinesCount(final int noiseLinesCount) {
+		this.noiseLinesCount = noiseLinesCount;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setPagesCount(final int pagesCount) {
+		this.pagesCount = pagesCount;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setRowsCount(final int rowsCount) {
+		this.rowsCount = rowsCount;
+		return this;
+	}
+
+	public SyntheticPdfGenerator setSeed(final long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	private void showText(final PDPageContentStream contentStream, final float x, final float y, final String text)
+			throws IOException {
+		contentStream.beginText();
+		contentStream.newLineAtOffset(x, y);
+		contentStream.showText(text);
+		contentStream.endText();
+	}
+
+	/**
+	 * Generate the document into the given file, parent directories are created
+	 *
+	 * @param path
+	 * @return path
+	 * @throws IOException
+	 */
+	public Path write(final Path path) throws IOException {
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		Random random = new Random(this.seed);
+		PDRectangle pageSize = this.getPageSize();
+		try (PDDocument document = new PDDocument()) {
+			PDPage[] templates = new PDPage[Math.min(this.distinctPages, this.pagesCount)];
+			for (int pageIdx = 0; pageIdx < this.pagesCount; pageIdx++) {
+				PDPage page = new PDPage(pageSize);
+				int templateIdx = pageIdx % templates.length;
+				if (templates[templateIdx] == null) {
+					this.addContent(document, page, random);
+					templates[templateIdx] = page;
+				} else {
+					// shared content stream and resources, written once
+					PDPage template = templates[templateIdx];
+					page.setContents(new PDStream(template.getCOSObject().getCOSStream(COSName.CONTENTS)));
+					page.setResources(template.getResources());
+				}
+				document.addPage(page);
+			}
+			document.save(path.toFile());
+		}
+		return path;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Range;
+
+/**
+ * TrapRangeBuilder.addRange() then build() over glyph-like ranges: short
+ * ranges spread over a page width, as added for column trap-ranges
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class TrapRangeBuilderBenchmark {
+
+	private int[] lowerEndpoints;
+	@Param({ "1000", "10000", "100000" })
+	private int rangesCount;
+	private int[] upperEndpoints;
+
+	@Benchmark
+	public List<Range<Integer>> build() {
+		TrapRangeBuilder trapRangeBuilder = new TrapRangeBuilder();
+		for (int idx = 0; idx < this.rangesCount; idx++) {
+			trapRangeBuilder.addRange(this.lowerEndpoints[idx], this.upperEndpoints[idx]);
+		}
+		return trapRangeBuilder.build();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		this.lowerEndpoints = new int[this.rangesCount];
+		this.upperEndpoints = new int[this.rangesCount];
+		for (int idx = 0; idx < this.rangesCount; idx++) {
+			this.lowerEndpoints[idx] = random.nextInt(800);
+			this.upperEndpoints[idx] = this.lowerEndpoints[idx] + random.nextInt(8);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+/**
+ * Stops an extraction from another thread, see
+ * PDFTableExtractor.setCancellationToken(). Capture and table assembly loops
+ * check it, tables built before the cancellation are returned
+ */
+public class CancellationToken {
+	private volatile boolean cancelled;
+
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of extract(), or of the stream returned by
+ * extractStream() until it is fully consumed
+ */
+@Name("com.giaybac.traprange.DocumentExtraction")
+@Label("Document Extraction")
+@Category("TrapRange")
+class DocumentExtractionEvent extends Event {
+	@Label("Cached")
+	@Description("Tables were read from the extraction cache")
+	boolean cached;
+
+	@Label("Document")
+	String document;
+
+	@Label("Tables")
+	int tablesCount;
+}
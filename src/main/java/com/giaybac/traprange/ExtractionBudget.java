@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.giaybac.traprange.ExtractionResult.Status;
+
+/**
+ * Timeouts, glyph ceilings and cancellation of one extraction. Capture and
+ * table assembly loops report their progress here, an ExceededException is
+ * thrown out of the loop as soon as a budget is exceeded. Shared by the
+ * workers of a parallel extraction
+ */
+class ExtractionBudget {
+	/**
+	 * Unchecked, so that PDFBox doesn't swallow it like IOExceptions of form
+	 * XObjects. No stack trace: it is control flow
+	 */
+	static class ExceededException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final boolean pageOnly;
+		private final Status status;
+
+		private ExceededException(final Status status, final boolean pageOnly) {
+			super(status.toString(), null, false, false);
+			this.status = status;
+			this.pageOnly = pageOnly;
+		}
+	}
+
+	/**
+	 * Budget of one page being stripped. Checks are glyph-driven: the clock is
+	 * read when the page starts, every CHECK_INTERVAL glyphs and when the page
+	 * ends, so content without glyphs (vector graphics, images) isn't
+	 * interrupted, it is only detected at the end of its page
+	 */
+	class PageBudget {
+		private int glyphsCount;
+		private final long startTime = System.nanoTime();
+
+		/**
+		 * Cancellation, document timeout and page timeout
+		 */
+		void check() {
+			ExtractionBudget.this.check();
+			if (ExtractionBudget.this.pageTimeout > 0
+					&& System.nanoTime() - this.startTime > ExtractionBudget.this.pageTimeout) {
+				throw new ExceededException(Status.TIMEOUT_EXCEEDED, true);
+			}
+		}
+
+		void glyphCaptured() {
+			this.glyphsCount++;
+			if (ExtractionBudget.this.maxPageGlyphs > 0 && this.glyphsCount > ExtractionBudget.this.maxPageGlyphs) {
+				throw new ExceededException(Status.GLYPH_LIMIT_EXCEEDED, true);
+			}
+			if (ExtractionBudget.this.maxGlyphs > 0
+					&& ExtractionBudget.this.glyphsCount.incrementAndGet() > ExtractionBudget.this.maxGlyphs) {
+				throw new ExceededException(Status.GLYPH_LIMIT_EXCEEDED, false);
+			}
+			// reading the clock for each glyph would cost more than stripping it
+			if (this.glyphsCount % ExtractionBudget.CHECK_INTERVAL == 0) {
+				this.check();
+			}
+		}
+	}
+
+	private static final int CHECK_INTERVAL = 64;
+
+	private final CancellationToken cancellationToken;
+	private final AtomicLong glyphsCount = new AtomicLong();
+	private final Logger logger = LoggerFactory.getLogger(ExtractionBudget.class);
+	private final long maxGlyphs;
+	private final int maxPageGlyphs;
+	private final long pageTimeout;
+	private final Set<Integer> skippedPageIdxes = new ConcurrentSkipListSet<>();
+	private final long startTime = System.nanoTime();
+	private final AtomicReference<Status> stopStatus = new AtomicReference<>();
+	private final long timeout;
+
+	/**
+	 * Limits less than or equal to 0 are ignored
+	 *
+	 * @param timeout           in nanoseconds, from now
+	 * @param pageTimeout       in nanoseconds
+	 * @param maxGlyphs
+	 * @param maxPageGlyphs
+	 * @param cancellationToken nullable
+	 */
+	ExtractionBudget(final long timeout, final long pageTimeout, final long maxGlyphs, final int maxPageGlyphs,
+			final CancellationToken cancellationToken) {
+		this.timeout = timeout;
+		this.pageTimeout = pageTimeout;
+		this.maxGlyphs = maxGlyphs;
+		this.maxPageGlyphs = maxPageGlyphs;
+		this.cancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Cancellation and document timeout, called by assembly loops
+	 */
+	void check() {
+		if (this.cancellationToken != null && this.cancellationToken.isCancelled()) {
+			throw new ExceededException(Status.CANCELLED, false);
+		}
+		if (this.timeout > 0 && System.nanoTime() - this.startTime > this.timeout) {
+			throw new ExceededException(Status.TIMEOUT_EXCEEDED, false);
+		}
+	}
+
+	/**
+	 * Record an exceeded budget
+	 *
+	 * @param pageIdx page being stripped or assembled
+	 * @param ex
+	 * @return true if only this page is over budget, next pages can be extracted
+	 */
+	boolean exceeded(final int pageIdx, final ExceededException ex) {
+		if (ex.pageOnly) {
+			this.skippedPageIdxes.add(pageIdx);
+			this.logger.warn("Page " + pageIdx + " skipped: " + ex.status);
+			return true;
+		}
+		if (this.stopStatus.compareAndSet(null, ex.status)) {
+			this.logger.warn("Extraction stopped in page " + pageIdx + ": " + ex.status);
+		}
+		return false;
+	}
+
+	/**
+	 * @throws ExtractionStoppedException if the document budget has been exceeded
+	 *                                    or the extraction cancelled
+	 */
+	void checkStopped() {
+		Status stopStatus = this.stopStatus.get();
+		if (stopStatus != null) {
+			throw new ExtractionStoppedException(stopStatus);
+		}
+	}
+
+	List<Integer> getSkippedPageIdxes() {
+		return new ArrayList<>(this.skippedPageIdxes);
+	}
+
+	Status getStatus() {
+		Status retVal = this.stopStatus.get();
+		if (retVal != null) {
+			return retVal;
+		}
+		return this.skippedPageIdxes.isEmpty() ? Status.COMPLETED : Status.PAGES_SKIPPED;
+	}
+
+	/**
+	 * Cancellation and document timeout are checked when a page starts
+	 *
+	 * @return
+	 */
+	PageBudget startPage() {
+		this.check();
+		return new PageBudget();
+	}
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.entity.TableCell;
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * On-disk cache of extracted tables, see PDFTableExtractor.setCache(). An
+ * entry is keyed by the SHA-256 of the pdf content and the extraction options,
+ * and stored as one deflated binary file. When the cache directory grows over
+ * maxSize, least recently used entries are deleted. The size is kept as a
+ * running total, the directory is only scanned at construction and when the
+ * total crosses maxSize.
+ *
+ * Cache failures are logged and never fail an extraction
+ */
+public class ExtractionCache {
+	private static final String EXTENSION = ".tables";
+	private static final int MAGIC = 0x54524331; // TRC1
+
+	private static List<Table> read(final DataInputStream in) throws IOException {
+		if (in.readInt() != ExtractionCache.MAGIC) {
+			throw new IOException("Invalid cache entry");
+		}
+		int tablesCount = in.readInt();
+		List<Table> retVal = new ArrayList<>(tablesCount);
+		for (int tableIdx = 0; tableIdx < tablesCount; tableIdx++) {
+			Table table = new Table(in.readInt(), in.readInt());
+			int rowsCount = in.readInt();
+			for (int rowIdx = 0; rowIdx < rowsCount; rowIdx++) {
+				TableRow row = new TableRow(in.readInt());
+				int cellsCount = in.readInt();
+				for (int cellIdx = 0; cellIdx < cellsCount; cellIdx++) {
+					int idx = in.readInt();
+					byte[] content = new byte[in.readInt()];
+					in.readFully(content);
+					row.getCells().add(new TableCell(idx, new String(content, StandardCharsets.UTF_8)));
+				}
+				table.getRows().add(row);
+			}
+			retVal.add(table);
+		}
+		return retVal;
+	}
+
+	private static void write(final DataOutputStream out, final List<Table> tables) throws IOException {
+		out.writeInt(ExtractionCache.MAGIC);
+		out.writeInt(tables.size());
+		for (Table table : tables) {
+			out.writeInt(table.getPageIdx());
+			out.writeInt(table.getColumnsCount());
+			out.writeInt(table.getRows().size());
+			for (TableRow row : table.getRows()) {
+				out.writeInt(row.getIdx());
+				out.writeInt(row.getCells().size());
+				for (TableCell cell : row.getCells()) {
+					byte[] content = cell.getContent().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(cell.getIdx());
+					out.writeInt(content.length);
+					out.write(content);
+				}
+			}
+		}
+	}
+
+	private final Path directory;
+	private final Logger logger = LoggerFactory.getLogger(ExtractionCache.class);
+	private final long maxSize;
+	// bytes of all entries, guarded by this
+	private long size;
+
+	/**
+	 * @param directory created if it doesn't exist
+	 * @param maxSize   in bytes
+	 */
+	public ExtractionCache(final Path directory, final long maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		if (Files.isDirectory(directory)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ExtractionCache.EXTENSION)) {
+				for (Path file : stream) {
+					this.size += Files.size(file);
+				}
+			} catch (IOException ex) {
+				this.logger.warn("Cache directory " + directory + " can't be read", ex);
+			}
+		}
+	}
+
+	/**
+	 * Move a written entry into the cache, evict entries if the cache no longer
+	 * fits in maxSize
+	 *
+	 * @param tempFile
+	 * @param file
+	 * @throws IOException
+	 */
+	private synchronized void add(final Path tempFile, final Path file) throws IOException {
+		long replacedSize = Files.exists(file) ? Files.size(file) : 0;
+		// readers never see a partial entry
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		this.size += Files.size(file) - replacedSize;
+		if (this.size > this.maxSize) {
+			this.evict();
+		}
+	}
+
+	/**
+	 * Delete least recently used entries until the cache fits in maxSize. Sizes
+	 * are read again, entries may have been deleted by another process
+	 *
+	 * @throws IOException
+	 */
+	private synchronized void evict() throws IOException {
+		Map<Path, FileTime> lastModifiedTimes = new HashMap<>();
+		long size = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + ExtractionCache.EXTENSION)) {
+			for (Path file : stream) {
+				lastModifiedTimes.put(file, Files.getLastModifiedTime(file));
+				size += Files.size(file);
+			}
+		}
+		this.size = size;
+		if (size <= this.maxSize) {
+			return;
+		}
+		List<Path> files = new ArrayList<>(lastModifiedTimes.keySet());
+		files.sort((o1, o2) -> lastModifiedTimes.get(o1).compareTo(lastModifiedTimes.get(o2)));
+		for (int idx = 0; idx < files.size() && this.size > this.maxSize; idx++) {
+			Path file = files.get(idx);
+			long fileSize = Files.size(file);
+			Files.deleteIfExists(file);
+			this.size -= fileSize;
+			this.logger.debug("Evicted cache entry " + file.getFileName());
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return null if there's no entry for this key
+	 */
+	List<Table> get(final String key) {
+		Path file = this.getFile(key);
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new InflaterInputStream(Files.newInputStream(file))))) {
+			List<Table> retVal = ExtractionCache.read(in);
+			// last modified time orders entries for eviction
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return retVal;
+		} catch (NoSuchFileException ex) {
+			return null;
+		} catch (IOException ex) {
+			this.logger.warn("Invalid cache entry " + file + ", it is ignored", ex);
+			return null;
+		}
+	}
+
+	private Path getFile(final String key) {
+		return this.directory.resolve(key + ExtractionCache.EXTENSION);
+	}
+
+	/**
+	 * @param content pdf content, fully read but not closed
+	 * @param options extraction options changing the result
+	 * @return
+	 * @throws IOException
+	 */
+	String getKey(final InputStream content, final String options) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		byte[] buffer = new byte[8192];
+		int length;
+		while ((length = content.read(buffer)) != -1) {
+			digest.update(buffer, 0, length);
+		}
+		digest.update((byte) 0);
+		digest.update(options.getBytes(StandardCharsets.UTF_8));
+		StringBuilder retVal = new StringBuilder();
+		for (byte b : digest.digest()) {
+			retVal.append(String.format("%02x", b));
+		}
+		return retVal.toString();
+	}
+
+	void put(final String key, final List<Table> tables) {
+		try {
+			Files.createDirectories(this.directory);
+			Path tempFile = Files.createTempFile(this.directory, key, ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(tempFile))))) {
+					ExtractionCache.write(out, tables);
+				}
+				this.add(tempFile, this.getFile(key));
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		} catch (IOException ex) {
+			this.logger.warn("Cache entry of " + tables.size() + " table(s) can't be written", ex);
+		}
+	}
+}
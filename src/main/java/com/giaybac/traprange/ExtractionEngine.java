@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Extraction options (pages, except pages, except lines, template, regions,
+ * budgets...) configured once and shared between threads, see
+ * PDFTableExtractor.toEngine(). Each extraction runs in its own session, an
+ * extractor holding the document being extracted:
+ *
+ * <pre>
+ * ExtractionEngine engine = new PDFTableExtractor().exceptLine(new int[] { 0, -1 }).toEngine();
+ * // from any thread
+ * List&lt;Table&gt; tables = engine.extract(path);
+ * </pre>
+ *
+ * The cache, executor, listener and cancellation token of the options are
+ * shared by all extractions
+ */
+public final class ExtractionEngine {
+	// never modified nor extracted from, only copied
+	private final PDFTableExtractor options;
+
+	ExtractionEngine(final PDFTableExtractor options) {
+		this.options = options;
+	}
+
+	/**
+	 * @param inputStream
+	 * @return
+	 * @see PDFTableExtractor#extract()
+	 */
+	public List<Table> extract(final InputStream inputStream) {
+		return this.newExtractor().setSource(inputStream).extract();
+	}
+
+	/**
+	 * @param path
+	 * @return
+	 * @see PDFTableExtractor#extract()
+	 */
+	public List<Table> extract(final Path path) {
+		return this.newExtractor().setSource(path).extract();
+	}
+
+	/**
+	 * Session for the other extractions: streams, statuses, passwords or document
+	 * ids. The returned extractor is owned by the caller, changing it doesn't
+	 * change this engine
+	 *
+	 * @return
+	 */
+	public PDFTableExtractor newExtractor() {
+		return new PDFTableExtractor(this.options);
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+/**
+ * Timings and counters of an extraction, see PDFTableExtractor.setListener().
+ * Durations are in nanoseconds. All methods do nothing by default, implement
+ * only the needed ones.
+ *
+ * With parallelism, pageStripped() and lineRangesBuilt() are called from worker
+ * threads. documentLoaded() is called once, copies loaded by the workers are not
+ * reported.
+ *
+ * extractStream() strips pages twice, column trap-ranges are inferred first.
+ * Pages are reported once, when their table is built
+ */
+public interface ExtractionListener {
+
+	/**
+	 * Column trap-ranges inferred from all extracted pages. With extractStream(),
+	 * the duration includes the first pass stripping the pages
+	 *
+	 * @param duration
+	 * @param columnRangesCount
+	 */
+	default void columnRangesBuilt(final long duration, final int columnRangesCount) {
+	}
+
+	/**
+	 * End of extract(), or of the stream returned by extractStream() once it is
+	 * fully consumed. Tables read from the cache are reported here only
+	 *
+	 * @param duration  since the extraction started, loading included
+	 * @param tablesCount
+	 */
+	default void documentExtracted(final long duration, final int tablesCount) {
+	}
+
+	/**
+	 * @param duration
+	 * @param bytesCount size of the parsed content
+	 * @param pagesCount
+	 */
+	default void documentLoaded(final long duration, final long bytesCount, final int pagesCount) {
+	}
+
+	/**
+	 * Line trap-ranges of a page, excepted lines removed
+	 *
+	 * @param pageIdx
+	 * @param duration
+	 * @param lineRangesCount
+	 */
+	default void lineRangesBuilt(final int pageIdx, final long duration, final int lineRangesCount) {
+	}
+
+	/**
+	 * @param pageIdx
+	 * @param duration
+	 * @param glyphsCount before excepted lines are removed
+	 */
+	default void pageStripped(final int pageIdx, final long duration, final int glyphsCount) {
+	}
+
+	/**
+	 * @param pageIdx
+	 * @param duration
+	 * @param rowsCount
+	 * @param columnsCount
+	 */
+	default void tableBuilt(final int pageIdx, final long duration, final int rowsCount, final int columnsCount) {
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Tables of PDFTableExtractor.extractWithStatus() and whether all requested
+ * pages were extracted
+ */
+public class ExtractionResult {
+	public enum Status {
+		/**
+		 * All requested pages were extracted
+		 */
+		COMPLETED,
+		/**
+		 * Some pages were over their glyph ceiling or timeout, see
+		 * getSkippedPageIdxes(). Other pages were extracted
+		 */
+		PAGES_SKIPPED,
+		/**
+		 * The document glyph ceiling was reached, extraction stopped
+		 */
+		GLYPH_LIMIT_EXCEEDED,
+		/**
+		 * The document timeout was reached, extraction stopped
+		 */
+		TIMEOUT_EXCEEDED,
+		/**
+		 * The cancellation token was cancelled, extraction stopped
+		 */
+		CANCELLED
+	}
+
+	private final List<Integer> skippedPageIdxes;
+	private final Status status;
+	private final List<Table> tables;
+
+	ExtractionResult(final List<Table> tables, final Status status, final List<Integer> skippedPageIdxes) {
+		this.tables = tables;
+		this.status = status;
+		this.skippedPageIdxes = Collections.unmodifiableList(skippedPageIdxes);
+	}
+
+	/**
+	 * @return pages over their own glyph ceiling or timeout, ordered ASC
+	 */
+	public List<Integer> getSkippedPageIdxes() {
+		return this.skippedPageIdxes;
+	}
+
+	public Status getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @return tables of the pages extracted before a budget was exceeded if the
+	 *         status isn't COMPLETED
+	 */
+	public List<Table> getTables() {
+		return this.tables;
+	}
+}
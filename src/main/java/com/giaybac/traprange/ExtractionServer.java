@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.writer.TableWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Extraction over HTTP with the JDK built-in server, one warm JVM serves many
+ * documents:
+ *
+ * <pre>
+ * curl --data-binary @table.pdf "http://localhost:8080/extract?f=csv&amp;el=0,-1"
+ * </pre>
+ *
+ * The request body is the pdf file. Query parameters are the ones of the
+ * command line: f, p, ep, el and region. Tables are streamed page by page with
+ * the writer of f.
+ *
+ * Each request runs on a virtual thread when the JVM supports them (Java 21+),
+ * on a pooled thread otherwise. At most concurrency extractions run at the same
+ * time and queueCapacity requests wait for their turn, other requests are
+ * answered with HTTP 429. Each extraction is stopped after a timeout, 1 minute
+ * by default, answered with HTTP 503 if no table has been sent yet
+ */
+public class ExtractionServer {
+	private static final List<String> PARAMETER_NAMES = Arrays.asList("f", "p", "ep", "el", "region");
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up by reflection, this
+	 * library targets Java 11
+	 *
+	 * @return
+	 */
+	private static ExecutorService createRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			// admission bounds the number of busy threads
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	private static String getContentType(final String format) {
+		switch (format) {
+		case "csv":
+			return "text/csv; charset=utf-8";
+		case "jsonl":
+			return "application/x-ndjson; charset=utf-8";
+		default:
+			return "text/html; charset=utf-8";
+		}
+	}
+
+	private final Semaphore admissions;
+	private final ExecutorService executor = ExtractionServer.createRequestExecutor();
+	private ExtractionListener listener;
+	private final Logger logger = LoggerFactory.getLogger(ExtractionServer.class);
+	private final AtomicLong requestsCount = new AtomicLong();
+	private final Semaphore runningExtractions;
+	private final HttpServer server;
+	private Duration timeout = Duration.ofMinutes(1);
+
+	/**
+	 * @param address       port 0 picks a free port, see getPort()
+	 * @param concurrency   extractions running at the same time
+	 * @param queueCapacity requests waiting for a running extraction to end
+	 * @throws IOException
+	 */
+	public ExtractionServer(final InetSocketAddress address, final int concurrency, final int queueCapacity)
+			throws IOException {
+		if (concurrency < 1 || queueCapacity < 0) {
+			throw new IllegalArgumentException("Invalid concurrency or queue capacity: " + concurrency + ", "
+					+ queueCapacity);
+		}
+		this.runningExtractions = new Semaphore(concurrency, true);
+		this.admissions = new Semaphore(concurrency + queueCapacity);
+		this.server = HttpServer.create(address, 0);
+		this.server.createContext("/extract", this::handle);
+		this.server.setExecutor(this.executor);
+	}
+
+	private void extract(final HttpExchange exchange) throws IOException {
+		String[] args;
+		PDFTableExtractor extractor;
+		try {
+			args = this.getArgs(exchange.getRequestURI().getRawQuery());
+			extractor = MAIN.createExtractor(args).setTimeout(this.timeout).setListener(this.listener);
+			MAIN.getFormat(args);
+		} catch (RuntimeException ex) {
+			this.sendError(exchange, 400, ex.getMessage());
+			return;
+		}
+		String documentId = "request-" + this.requestsCount.incrementAndGet();
+		Stream<Table> tables;
+		try {
+			// the document is parsed before the response starts, invalid files get an error status
+			tables = extractor.setSource(exchange.getRequestBody()).setDocumentId(documentId).extractStream();
+		} catch (ExtractionStoppedException ex) {
+			this.logger.warn(ex.getMessage() + " in " + documentId);
+			this.sendError(exchange, 503, ex.getMessage());
+			return;
+		} catch (RuntimeException ex) {
+			this.logger.debug("Invalid pdf file in " + documentId, ex);
+			this.sendError(exchange, 422, "Invalid pdf file");
+			return;
+		}
+		try (Stream<Table> closedTables = tables) {
+			exchange.getResponseHeaders().set("Content-Type", ExtractionServer.getContentType(MAIN.getFormat(args)));
+			// chunked: tables are written as soon as they are built
+			exchange.sendResponseHeaders(200, 0);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+			TableWriter tableWriter = MAIN.createTableWriter(args, writer);
+			tableWriter.begin();
+			Iterator<Table> tableIterator = closedTables.iterator();
+			while (tableIterator.hasNext()) {
+				tableWriter.write(tableIterator.next());
+			}
+			tableWriter.end();
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Query parameters as command line arguments, unknown parameters are rejected
+	 *
+	 * @param query raw query, nullable
+	 * @return
+	 * @throws UnsupportedEncodingException
+	 */
+	private String[] getArgs(final String query) throws UnsupportedEncodingException {
+		List<String> retVal = new ArrayList<>();
+		if (query == null || query.isEmpty()) {
+			return new String[0];
+		}
+		for (String parameter : query.split("&")) {
+			String[] items = parameter.split("=", 2);
+			String name = URLDecoder.decode(items[0], "UTF-8");
+			if (!ExtractionServer.PARAMETER_NAMES.contains(name) || items.length != 2) {
+				throw new IllegalArgumentException("Invalid parameter: " + name);
+			}
+			retVal.add("-" + name);
+			retVal.add(URLDecoder.decode(items[1], "UTF-8"));
+		}
+		return retVal.toArray(new String[0]);
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				this.sendError(exchange, 405, "Only POST is supported");
+				return;
+			}
+			if (!this.admissions.tryAcquire()) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				this.sendError(exchange, 429, "Too many extractions, retry later");
+				return;
+			}
+			try {
+				// queued until an extraction ends
+				this.runningExtractions.acquire();
+				try {
+					this.extract(exchange);
+				} finally {
+					this.runningExtractions.release();
+				}
+			} finally {
+				this.admissions.release();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExtractionStoppedException ex) {
+			// tables already sent, the response is truncated
+			this.logger.warn(ex.getMessage() + ": " + exchange.getRequestURI());
+		} catch (RuntimeException ex) {
+			this.logger.error("Extraction failed: " + exchange.getRequestURI(), ex);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void sendError(final HttpExchange exchange, final int status, final String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Listener of every extraction, called from the request threads of concurrent
+	 * extractions: it must be thread-safe
+	 *
+	 * @param listener null for none
+	 * @return
+	 */
+	public ExtractionServer setListener(final ExtractionListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Document timeout of each extraction, see PDFTableExtractor.setTimeout()
+	 *
+	 * @param timeout null is unlimited, default is 1 minute
+	 * @return
+	 */
+	public ExtractionServer setTimeout(final Duration timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+
+	public void start() {
+		this.server.start();
+		this.logger.info("Extraction server started on port " + this.getPort());
+	}
+
+	/**
+	 * Stop accepting requests, wait for running extractions up to delay then stop
+	 *
+	 * @param delay in seconds
+	 */
+	public void stop(final int delay) {
+		this.server.stop(delay);
+		this.executor.shutdown();
+		try {
+			this.executor.awaitTermination(delay, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		this.executor.shutdownNow();
+	}
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+/**
+ * Thrown by PDFTableExtractor.extractStream() and its stream when the document
+ * timeout or glyph ceiling is exceeded, or the extraction is cancelled. Tables
+ * consumed before are valid, the remaining ones are not built
+ */
+public class ExtractionStoppedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final ExtractionResult.Status status;
+
+	ExtractionStoppedException(final ExtractionResult.Status status) {
+		super("Extraction stopped: " + status);
+		this.status = status;
+	}
+
+	/**
+	 * @return GLYPH_LIMIT_EXCEEDED, TIMEOUT_EXCEEDED or CANCELLED
+	 */
+	public ExtractionResult.Status getStatus() {
+		return this.status;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.Arrays;
+
+/**
+ * Bounds and unicode of stripped glyphs, stored in parallel primitive arrays.
+ * Unicode of all glyphs is kept in one shared char arena, each glyph points to
+ * its chars by offset and length. This replaces retained TextPosition objects:
+ * only x, y, width, height and unicode are needed to build tables
+ */
+class GlyphBuffer {
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * Map float to an int having the same order, -0.0 and 0.0 are equal
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static int sortableBits(final float value) {
+		int bits = Float.floatToIntBits(value + 0.0f);
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	/**
+	 * Stable sort of idxes[from, to) by the given coordinates ASC
+	 *
+	 * @param idxes
+	 * @param from
+	 * @param to
+	 * @param coordinates
+	 */
+	static void sortIdxes(final int[] idxes, final int from, final int to, final float[] coordinates) {
+		long[] keys = new long[to - from];
+		for (int idx = from; idx < to; idx++) {
+			// position in low bits keeps the sort stable
+			keys[idx - from] = ((long) GlyphBuffer.sortableBits(coordinates[idxes[idx]]) << 32) | (idx - from);
+		}
+		Arrays.sort(keys);
+		int[] sortedIdxes = new int[keys.length];
+		for (int idx = 0; idx < keys.length; idx++) {
+			sortedIdxes[idx] = idxes[from + (int) keys[idx]];
+		}
+		System.arraycopy(sortedIdxes, 0, idxes, from, sortedIdxes.length);
+	}
+
+	private char[] chars = new char[GlyphBuffer.INITIAL_CAPACITY];
+	private int charsCount;
+	private int[] charsLengths = new int[GlyphBuffer.INITIAL_CAPACITY];
+	private int[] charsOffsets = new int[GlyphBuffer.INITIAL_CAPACITY];
+	private float[] heights = new float[GlyphBuffer.INITIAL_CAPACITY];
+	private int size;
+	private float[] widths = new float[GlyphBuffer.INITIAL_CAPACITY];
+	private float[] xs = new float[GlyphBuffer.INITIAL_CAPACITY];
+	private float[] ys = new float[GlyphBuffer.INITIAL_CAPACITY];
+
+	public void add(final float x, final float y, final float width, final float height, final String unicode) {
+		if (this.size == this.xs.length) {
+			int capacity = this.size * 2;
+			this.xs = Arrays.copyOf(this.xs, capacity);
+			this.ys = Arrays.copyOf(this.ys, capacity);
+			this.widths = Arrays.copyOf(this.widths, capacity);
+			this.heights = Arrays.copyOf(this.heights, capacity);
+			this.charsOffsets = Arrays.copyOf(this.charsOffsets, capacity);
+			this.charsLengths = Arrays.copyOf(this.charsLengths, capacity);
+		}
+		int length = unicode != null ? unicode.length() : 0;
+		if (this.charsCount + length > this.chars.length) {
+			this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length * 2, this.charsCount + length));
+		}
+		if (length > 0) {
+			unicode.getChars(0, length, this.chars, this.charsCount);
+		}
+		this.xs[this.size] = x;
+		this.ys[this.size] = y;
+		this.widths[this.size] = width;
+		this.heights[this.size] = height;
+		this.charsOffsets[this.size] = this.charsCount;
+		this.charsLengths[this.size] = length;
+		this.charsCount += length;
+		this.size++;
+	}
+
+	public void appendUnicode(final int idx, final StringBuilder builder) {
+		builder.append(this.chars, this.charsOffsets[idx], this.charsLengths[idx]);
+	}
+
+	public float getHeight(final int idx) {
+		return this.heights[idx];
+	}
+
+	public float getWidth(final int idx) {
+		return this.widths[idx];
+	}
+
+	public float getX(final int idx) {
+		return this.xs[idx];
+	}
+
+	float[] getXs() {
+		return this.xs;
+	}
+
+	public float getY(final int idx) {
+		return this.ys[idx];
+	}
+
+	/**
+	 * Glyph at srcIdx is moved to dstIdx, dstIdx <= srcIdx. Used with truncate()
+	 * to remove glyphs in place
+	 *
+	 * @param srcIdx
+	 * @param dstIdx
+	 */
+	public void move(final int srcIdx, final int dstIdx) {
+		this.xs[dstIdx] = this.xs[srcIdx];
+		this.ys[dstIdx] = this.ys[srcIdx];
+		this.widths[dstIdx] = this.widths[srcIdx];
+		this.heights[dstIdx] = this.heights[srcIdx];
+		this.charsOffsets[dstIdx] = this.charsOffsets[srcIdx];
+		this.charsLengths[dstIdx] = this.charsLengths[srcIdx];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Stable sort of glyphs by y ASC
+	 */
+	public void sortByY() {
+		int[] idxes = new int[this.size];
+		for (int idx = 0; idx < this.size; idx++) {
+			idxes[idx] = idx;
+		}
+		GlyphBuffer.sortIdxes(idxes, 0, this.size, this.ys);
+		float[] sortedXs = new float[this.xs.length];
+		float[] sortedYs = new float[this.ys.length];
+		float[] sortedWidths = new float[this.widths.length];
+		float[] sortedHeights = new float[this.heights.length];
+		int[] sortedCharsOffsets = new int[this.charsOffsets.length];
+		int[] sortedCharsLengths = new int[this.charsLengths.length];
+		for (int idx = 0; idx < this.size; idx++) {
+			int srcIdx = idxes[idx];
+			sortedXs[idx] = this.xs[srcIdx];
+			sortedYs[idx] = this.ys[srcIdx];
+			sortedWidths[idx] = this.widths[srcIdx];
+			sortedHeights[idx] = this.heights[srcIdx];
+			sortedCharsOffsets[idx] = this.charsOffsets[srcIdx];
+			sortedCharsLengths[idx] = this.charsLengths[srcIdx];
+		}
+		this.xs = sortedXs;
+		this.ys = sortedYs;
+		this.widths = sortedWidths;
+		this.heights = sortedHeights;
+		this.charsOffsets = sortedCharsOffsets;
+		this.charsLengths = sortedCharsLengths;
+	}
+
+	/**
+	 * Keep only the first size glyphs
+	 *
+	 * @param size
+	 */
+	public void truncate(final int size) {
+		this.size = size;
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * Strips glyphs of document pages into GlyphBuffers, page by page. Pages are
+ * given by the caller, see PageCursor
+ */
+interface GlyphCapture {
+	/**
+	 * Strips one page into glyphs, called by GlyphCapture.extract()
+	 */
+	@FunctionalInterface
+	interface PageStripper {
+		/**
+		 * @param glyphs     to fill
+		 * @param region     glyphs outside are skipped, null to keep all glyphs
+		 * @param pageBudget to report each captured glyph to, null without budget
+		 * @throws IOException
+		 */
+		void strip(GlyphBuffer glyphs, Rectangle2D region, ExtractionBudget.PageBudget pageBudget)
+				throws IOException;
+	}
+
+	/**
+	 * Page setup shared by implementations: pages without content are skipped,
+	 * the region of the page is selected and its budget is checked when the page
+	 * starts and ends, besides the glyph-driven checks of the stripper
+	 *
+	 * @param pageId
+	 * @param page
+	 * @param budget   nullable
+	 * @param regions  pageIdx -1 is the region of pages without their own
+	 * @param stripper
+	 * @return glyphs ordered by y ASC, null if the page has no content or is
+	 *         skipped
+	 * @throws IOException
+	 */
+	static GlyphBuffer extract(final int pageId, final PDPage page, final ExtractionBudget budget,
+			final Map<Integer, Rectangle2D> regions, final PageStripper stripper) throws IOException {
+		if (!page.hasContents()) {
+			return null;
+		}
+		GlyphBuffer retVal = new GlyphBuffer();
+		Rectangle2D region = regions.containsKey(pageId) ? regions.get(pageId) : regions.get(-1);
+		if (budget != null) {
+			try {
+				ExtractionBudget.PageBudget pageBudget = budget.startPage();
+				stripper.strip(retVal, region, pageBudget);
+				pageBudget.check();
+			} catch (ExtractionBudget.ExceededException ex) {
+				if (budget.exceeded(pageId, ex)) {
+					return null;
+				}
+				throw ex;
+			}
+		} else {
+			stripper.strip(retVal, region, null);
+		}
+		retVal.sortByY();
+		return retVal;
+	}
+
+	/**
+	 * Glyphs of one page ordered by y ASC. A page over its own budget is skipped,
+	 * ExtractionBudget.ExceededException is thrown when the document budget is
+	 * exceeded
+	 *
+	 * @param pageId
+	 * @param page   of getDocument()
+	 * @return null if the page has no content or is skipped
+	 * @throws IOException
+	 */
+	GlyphBuffer extract(int pageId, PDPage page) throws IOException;
+
+	PDDocument getDocument();
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.contentstream.operator.text.BeginText;
+import org.apache.pdfbox.contentstream.operator.text.EndText;
+import org.apache.pdfbox.contentstream.operator.text.MoveText;
+import org.apache.pdfbox.contentstream.operator.text.MoveTextSetLeading;
+import org.apache.pdfbox.contentstream.operator.text.NextLine;
+import org.apache.pdfbox.contentstream.operator.text.SetCharSpacing;
+import org.apache.pdfbox.contentstream.operator.text.SetFontAndSize;
+import org.apache.pdfbox.contentstream.operator.text.SetTextHorizontalScaling;
+import org.apache.pdfbox.contentstream.operator.text.SetTextLeading;
+import org.apache.pdfbox.contentstream.operator.text.SetTextRenderingMode;
+import org.apache.pdfbox.contentstream.operator.text.SetTextRise;
+import org.apache.pdfbox.contentstream.operator.text.SetWordSpacing;
+import org.apache.pdfbox.contentstream.operator.text.ShowText;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextAdjusted;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextLine;
+import org.apache.pdfbox.contentstream.operator.text.ShowTextLineAndSpace;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDCIDFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+/**
+ * Glyph-only capture built directly on PDFStreamEngine.showGlyph(). Glyph
+ * bounds are computed the same way PDFTextStripper computes TextPosition
+ * x/y/width/height, but no TextPosition is created and none of the stripper's
+ * text assembly runs: no article/bead division, no duplicate overlapping text
+ * suppression, no diacritic merging, no sort by position
+ */
+class GlyphCaptureEngine extends PDFStreamEngine implements GlyphCapture {
+	private static final GlyphList GLYPH_LIST;
+
+	static {
+		// same additional glyph list as PDFTextStripper
+		String path = "/org/apache/pdfbox/resources/glyphlist/additional.txt";
+		try (InputStream input = GlyphList.class.getResourceAsStream(path)) {
+			GLYPH_LIST = new GlyphList(GlyphList.getAdobeGlyphList(), input);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Could not load glyph list", ex);
+		}
+	}
+
+	private final ExtractionBudget budget;
+	private final PDDocument document;
+	private final Map<COSDictionary, Float> fontHeightMap = new WeakHashMap<>();
+	private GlyphBuffer glyphs;
+	private ExtractionBudget.PageBudget pageBudget;
+	private int pageRotation;
+	private PDRectangle pageSize;
+	// region of the current page, null to keep all glyphs
+	private Rectangle2D region;
+	private final Map<Integer, Rectangle2D> regions;
+
+	GlyphCaptureEngine(final PDDocument document) {
+		this(document, null, Collections.emptyMap());
+	}
+
+	/**
+	 * @param document
+	 * @param budget   nullable
+	 * @param regions  glyphs outside the region of their page are skipped, pageIdx
+	 *                 -1 is the region of pages without their own
+	 */
+	GlyphCaptureEngine(final PDDocument document, final ExtractionBudget budget,
+			final Map<Integer, Rectangle2D> regions) {
+		this.document = document;
+		this.budget = budget;
+		this.regions = regions;
+		this.addOperator(new BeginText());
+		this.addOperator(new Concatenate());
+		this.addOperator(new DrawObject());
+		this.addOperator(new EndText());
+		this.addOperator(new SetGraphicsStateParameters());
+		this.addOperator(new Save());
+		this.addOperator(new Restore());
+		this.addOperator(new NextLine());
+		this.addOperator(new SetCharSpacing());
+		this.addOperator(new MoveText());
+		this.addOperator(new MoveTextSetLeading());
+		this.addOperator(new SetFontAndSize());
+		this.addOperator(new ShowText());
+		this.addOperator(new ShowTextAdjusted());
+		this.addOperator(new SetTextLeading());
+		this.addOperator(new SetMatrix());
+		this.addOperator(new SetTextRenderingMode());
+		this.addOperator(new SetTextRise());
+		this.addOperator(new SetWordSpacing());
+		this.addOperator(new SetTextHorizontalScaling());
+		this.addOperator(new ShowTextLine());
+		this.addOperator(new ShowTextLineAndSpace());
+	}
+
+	/**
+	 * Height of the font in text space, same as
+	 * LegacyPDFStreamEngine.computeFontHeight()
+	 *
+	 * @param font
+	 * @return
+	 * @throws IOException
+	 */
+	private float computeFontHeight(final PDFont font) throws IOException {
+		BoundingBox bbox = font.getBoundingBox();
+		if (bbox.getLowerLeftY() < Short.MIN_VALUE) {
+			bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
+		}
+		float glyphHeight = bbox.getHeight() / 2;
+		PDFontDescriptor fontDescriptor = font.getFontDescriptor();
+		if (fontDescriptor != null) {
+			float capHeight = fontDescriptor.getCapHeight();
+			if (Float.compare(capHeight, 0) != 0
+					&& (capHeight < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
+				glyphHeight = capHeight;
+			}
+			float ascent = fontDescriptor.getAscent();
+			float descent = fontDescriptor.getDescent();
+			if (capHeight > ascent && ascent > 0 && descent < 0
+					&& ((ascent - descent) / 2 < glyphHeight || Float.compare(glyphHeight, 0) == 0)) {
+				glyphHeight = (ascent - descent) / 2;
+			}
+		}
+		if (font instanceof PDType3Font) {
+			return font.getFontMatrix().transformPoint(0, glyphHeight).y;
+		}
+		return glyphHeight / 1000;
+	}
+
+	@Override
+	public GlyphBuffer extract(final int pageId, final PDPage page) throws IOException {
+		return GlyphCapture.extract(pageId, page, this.budget, this.regions, (glyphs, region, pageBudget) -> {
+			this.glyphs = glyphs;
+			this.region = region;
+			this.pageBudget = pageBudget;
+			this.processPage(page);
+		});
+	}
+
+	private float getDisplacementX(final PDFont font, final int code, final Vector displacement) throws IOException {
+		if (!font.isVertical()) {
+			return displacement.getX();
+		}
+		// displacement of vertical characters isn't suitable as a width
+		float retVal = font.getWidth(code) / 1000;
+		TrueTypeFont ttf = null;
+		if (font instanceof PDTrueTypeFont) {
+			ttf = ((PDTrueTypeFont) font).getTrueTypeFont();
+		} else if (font instanceof PDType0Font) {
+			PDCIDFont cidFont = ((PDType0Font) font).getDescendantFont();
+			if (cidFont instanceof PDCIDFontType2) {
+				ttf = ((PDCIDFontType2) cidFont).getTrueTypeFont();
+			}
+		}
+		if (ttf != null && ttf.getUnitsPerEm() != 1000) {
+			retVal *= 1000f / ttf.getUnitsPerEm();
+		}
+		return retVal;
+	}
+
+	@Override
+	public PDDocument getDocument() {
+		return this.document;
+	}
+
+	@Override
+	public void processPage(final PDPage page) throws IOException {
+		this.pageRotation = page.getRotation();
+		this.pageSize = page.getCropBox();
+		super.processPage(page);
+	}
+
+	@Override
+	protected void showGlyph(final Matrix textRenderingMatrix, final PDFont font, final int code,
+			final Vector displacement) throws IOException {
+		if (this.pageBudget != null) {
+			this.pageBudget.glyphCaptured();
+		}
+		String glyphUnicode = font.toUnicode(code, GlyphCaptureEngine.GLYPH_LIST);
+		if (glyphUnicode == null) {
+			if (!(font instanceof PDSimpleFont)) {
+				// composite font codes without unicode mapping are skipped
+				return;
+			}
+			glyphUnicode = String.valueOf((char) code);
+		}
+		float fontSize = this.getGraphicsState().getTextState().getFontSize();
+		float horizontalScaling = this.getGraphicsState().getTextState().getHorizontalScaling() / 100f;
+		// displacement without character and word spacing, like PDFTextStripper
+		float tx = this.getDisplacementX(font, code, displacement) * fontSize * horizontalScaling;
+		float ty = displacement.getY() * fontSize;
+		Matrix textMatrix = this.getTextMatrix();
+		Matrix ctm = this.getGraphicsState().getCurrentTransformationMatrix();
+		// translation of [tx ty] x textMatrix x ctm
+		float px = tx * textMatrix.getScaleX() + ty * textMatrix.getShearX() + textMatrix.getTranslateX();
+		float py = tx * textMatrix.getShearY() + ty * textMatrix.getScaleY() + textMatrix.getTranslateY();
+		float endX = px * ctm.getScaleX() + py * ctm.getShearX() + ctm.getTranslateX();
+		float endY = px * ctm.getShearY() + py * ctm.getScaleY() + ctm.getTranslateY();
+
+		Float fontHeight = this.fontHeightMap.get(font.getCOSObject());
+		if (fontHeight == null) {
+			fontHeight = this.computeFontHeight(font);
+			this.fontHeightMap.put(font.getCOSObject(), fontHeight);
+		}
+		float height = Math.abs(fontHeight * textRenderingMatrix.getScalingFactorY());
+
+		// adjust for cropbox
+		float startX = textRenderingMatrix.getTranslateX();
+		float startY = textRenderingMatrix.getTranslateY();
+		float lowerLeftX = this.pageSize.getLowerLeftX();
+		float lowerLeftY = this.pageSize.getLowerLeftY();
+		if (lowerLeftX != 0 || lowerLeftY != 0) {
+			startX -= lowerLeftX;
+			startY -= lowerLeftY;
+			endX -= lowerLeftX;
+			endY -= lowerLeftY;
+		}
+		float pageWidth = this.pageSize.getWidth();
+		float pageHeight = this.pageSize.getHeight();
+		// same as TextPosition.getX(), getY() and getWidth()
+		float x;
+		float y;
+		float width;
+		switch (this.pageRotation) {
+		case 90:
+			x = startY;
+			y = pageWidth - (pageWidth - startX);
+			width = Math.abs(endY - startY);
+			break;
+		case 180:
+			x = pageWidth - startX;
+			y = pageHeight - (pageHeight - startY);
+			width = Math.abs(endX - startX);
+			break;
+		case 270:
+			x = pageHeight - startY;
+			y = pageWidth - startX;
+			width = Math.abs(endY - startY);
+			break;
+		default:
+			x = startX;
+			y = pageHeight - startY;
+			width = Math.abs(endX - startX);
+			break;
+		}
+		if (this.region != null && !this.region.contains(x, y)) {
+			return;
+		}
+		this.glyphs.add(x, y, width, height, glyphUnicode);
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Range;
+
+/**
+ * Column trap-ranges and line filters learned from a document, reusable for
+ * documents with the same layout. See PDFTableExtractor.extractTemplate() and
+ * setTemplate().
+ *
+ * Stored as a properties file:
+ *
+ * <pre>
+ * name=vendor-a
+ * columns=40..95,101..180
+ * exceptedLines=0@-1,-1@-1
+ * </pre>
+ *
+ * Columns are lower..upper x coordinates, excepted lines are lineIdx@pageIdx,
+ * pageIdx -1 means all pages. Columns must be ordered by lower ASC and must not
+ * overlap nor touch each other
+ */
+public class LayoutTemplate {
+
+	/**
+	 * @param columnRanges
+	 * @throws IllegalArgumentException if ranges are unbounded, unordered or
+	 *                                  connected
+	 */
+	private static void checkColumnRanges(final List<Range<Integer>> columnRanges) {
+		for (int idx = 0; idx < columnRanges.size(); idx++) {
+			Range<Integer> columnRange = columnRanges.get(idx);
+			if (!columnRange.hasLowerBound() || !columnRange.hasUpperBound()) {
+				throw new IllegalArgumentException("Unbounded column: " + columnRange);
+			}
+			if (idx > 0 && columnRange.lowerEndpoint() <= columnRanges.get(idx - 1).upperEndpoint()) {
+				throw new IllegalArgumentException(
+						"Unordered or overlapping columns: " + columnRanges.get(idx - 1) + ", " + columnRange);
+			}
+		}
+	}
+
+	public static LayoutTemplate read(final Path path) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		List<Range<Integer>> columnRanges = new ArrayList<>();
+		ImmutableListMultimap.Builder<Integer, Integer> exceptedLines = ImmutableListMultimap.builder();
+		try {
+			for (String column : LayoutTemplate.split(properties.getProperty("columns"))) {
+				String[] endpoints = column.split("\\.\\.");
+				columnRanges.add(
+						Range.closed(Integer.parseInt(endpoints[0].trim()), Integer.parseInt(endpoints[1].trim())));
+			}
+			for (String exceptedLine : LayoutTemplate.split(properties.getProperty("exceptedLines"))) {
+				String[] items = exceptedLine.split("@");
+				exceptedLines.put(Integer.parseInt(items[1].trim()), Integer.parseInt(items[0].trim()));
+			}
+		} catch (RuntimeException ex) {
+			throw new IOException("Invalid template " + path, ex);
+		}
+		if (columnRanges.isEmpty()) {
+			throw new IOException("Invalid template " + path + ": no columns");
+		}
+		try {
+			return new LayoutTemplate(properties.getProperty("name"), columnRanges, exceptedLines.build());
+		} catch (IllegalArgumentException ex) {
+			throw new IOException("Invalid template " + path + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	private static String[] split(final String value) {
+		return value == null || value.trim().isEmpty() ? new String[0] : value.split(",");
+	}
+
+	private final List<Range<Integer>> columnRanges;
+	private final Multimap<Integer, Integer> exceptedLines;
+	private final String name;
+
+	/**
+	 * @param name
+	 * @param columnRanges  ordered by lowerEndpoint ASC, not connected
+	 * @param exceptedLines pageIdx to lineIdxes, pageIdx -1 means all pages
+	 */
+	public LayoutTemplate(final String name, final List<Range<Integer>> columnRanges,
+			final Multimap<Integer, Integer> exceptedLines) {
+		LayoutTemplate.checkColumnRanges(columnRanges);
+		this.name = name;
+		this.columnRanges = Collections.unmodifiableList(new ArrayList<>(columnRanges));
+		this.exceptedLines = ImmutableListMultimap.copyOf(exceptedLines);
+	}
+
+	public List<Range<Integer>> getColumnRanges() {
+		return this.columnRanges;
+	}
+
+	public Multimap<Integer, Integer> getExceptedLines() {
+		return this.exceptedLines;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public void write(final Path path) throws IOException {
+		StringBuilder columns = new StringBuilder();
+		for (Range<Integer> columnRange : this.columnRanges) {
+			if (columns.length() > 0) {
+				columns.append(',');
+			}
+			columns.append(columnRange.lowerEndpoint()).append("..").append(columnRange.upperEndpoint());
+		}
+		StringBuilder exceptedLines = new StringBuilder();
+		for (Map.Entry<Integer, Integer> exceptedLine : this.exceptedLines.entries()) {
+			if (exceptedLines.length() > 0) {
+				exceptedLines.append(',');
+			}
+			exceptedLines.append(exceptedLine.getValue()).append('@').append(exceptedLine.getKey());
+		}
+		Properties properties = new Properties();
+		if (this.name != null) {
+			properties.setProperty("name", this.name);
+		}
+		properties.setProperty("columns", columns.toString());
+		properties.setProperty("exceptedLines", exceptedLines.toString());
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			properties.store(writer, "traprange layout template");
+		}
+	}
+}
@@ -5,16 +5,35 @@
 */
 package com.giaybac.traprange;
 
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.writer.CsvTableWriter;
+import com.giaybac.traprange.writer.HtmlTableWriter;
+import com.giaybac.traprange.writer.JsonLinesTableWriter;
+import com.giaybac.traprange.writer.TableWriter;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.Ints;
@@ -27,65 +46,182 @@ public class MAIN {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MAIN.class);
 
-	private static void extractTables(final String[] args) {
-		try {
-			List<Integer> pages = MAIN.getPages(args);
-			List<Integer> exceptPages = MAIN.getExceptPages(args);
-			List<Integer[]> exceptLines = MAIN.getExceptLines(args);
-			String in = MAIN.getIn(args);
-			String out = MAIN.getOut(args);
-			MAIN.LOGGER.info("Extraction started with file {} into {}", in, out);
+	static PDFTableExtractor createExtractor(final String[] args) {
+		List<Integer> pages = MAIN.getPages(args);
+		List<Integer> exceptPages = MAIN.getExceptPages(args);
+		List<Integer[]> exceptLines = MAIN.getExceptLines(args);
 
-			PDFTableExtractor extractor = new PDFTableExtractor().setSource(in);
-			// page
-			for (Integer page : pages) {
-				extractor.addPage(page);
-			}
-			// except page
-			for (Integer exceptPage : exceptPages) {
-				extractor.exceptPage(exceptPage);
+		PDFTableExtractor extractor = new PDFTableExtractor();
+		// page
+		for (Integer page : pages) {
+			extractor.addPage(page);
+		}
+		// except page
+		for (Integer exceptPage : exceptPages) {
+			extractor.exceptPage(exceptPage);
+		}
+		// except lines
+		List<Integer> exceptLineIdxes = new ArrayList<>();
+		Multimap<Integer, Integer> exceptLineInPages = LinkedListMultimap.create();
+		for (Integer[] exceptLine : exceptLines) {
+			if (exceptLine.length == 1) {
+				exceptLineIdxes.add(exceptLine[0]);
+			} else if (exceptLine.length == 2) {
+				int lineIdx = exceptLine[0];
+				int pageIdx = exceptLine[1];
+				exceptLineInPages.put(pageIdx, lineIdx);
 			}
-			// except lines
-			List<Integer> exceptLineIdxes = new ArrayList<>();
-			Multimap<Integer, Integer> exceptLineInPages = LinkedListMultimap.create();
-			for (Integer[] exceptLine : exceptLines) {
-				if (exceptLine.length == 1) {
-					exceptLineIdxes.add(exceptLine[0]);
-				} else if (exceptLine.length == 2) {
-					int lineIdx = exceptLine[0];
-					int pageIdx = exceptLine[1];
-					exceptLineInPages.put(pageIdx, lineIdx);
-				}
+		}
+		if (!exceptLineIdxes.isEmpty()) {
+			extractor.exceptLine(Ints.toArray(exceptLineIdxes));
+		}
+		if (!exceptLineInPages.isEmpty()) {
+			for (int pageIdx : exceptLineInPages.keySet()) {
+				extractor.exceptLine(pageIdx, Ints.toArray(exceptLineInPages.get(pageIdx)));
 			}
-			if (!exceptLineIdxes.isEmpty()) {
-				extractor.exceptLine(Ints.toArray(exceptLineIdxes));
+		}
+		// region
+		List<Integer> region = MAIN.getInts(args, "region");
+		if (!region.isEmpty()) {
+			if (region.size() != 4) {
+				throw new RuntimeException("Invalid argument (-region): " + region);
 			}
-			if (!exceptLineInPages.isEmpty()) {
-				for (int pageIdx : exceptLineInPages.keySet()) {
-					extractor.exceptLine(pageIdx, Ints.toArray(exceptLineInPages.get(pageIdx)));
-				}
+			extractor.setRegion(new Rectangle2D.Float(region.get(0), region.get(1), region.get(2), region.get(3)));
+		}
+		// timeout
+		Duration timeout = MAIN.getTimeout(args);
+		if (timeout != null) {
+			extractor.setTimeout(timeout);
+		}
+		// template
+		String template = MAIN.getArg(args, "template");
+		if (template != null && Files.exists(Paths.get(template))) {
+			try {
+				extractor.setTemplate(LayoutTemplate.read(Paths.get(template)));
+			} catch (IOException e) {
+				throw new RuntimeException("Invalid argument (-template): " + template, e);
 			}
-			// begin parsing pdf file
-			List<Table> tables = extractor.extract();
+		}
+		return extractor;
+	}
 
-			Writer writer = new OutputStreamWriter(new FileOutputStream(out), "UTF-8");
-			try {
-				for (Table table : tables) {
-					writer.write("Page: " + (table.getPageIdx() + 1) + "\n");
-					writer.write(table.toHtml());
-				}
-			} finally {
-				try {
-					writer.close();
-				} catch (Exception e) {
+	static TableWriter createTableWriter(final String[] args, final Appendable out) {
+		String format = MAIN.getFormat(args);
+		switch (format) {
+		case "csv":
+			return new CsvTableWriter(out);
+		case "jsonl":
+			return new JsonLinesTableWriter(out);
+		default:
+			return new HtmlTableWriter(out);
+		}
+	}
+
+	private static void extractTables(final String[] args) {
+		try {
+			String in = MAIN.getIn(args);
+			String out = MAIN.getOut(args);
+			String template = MAIN.getArg(args, "template");
+			if (template != null && !Files.exists(Paths.get(template))) {
+				if (MAIN.isBatch(in)) {
+					throw new RuntimeException("Template not found: " + template);
 				}
+				// learn the template from this file, next runs skip column inference
+				Path templatePath = Paths.get(template);
+				MAIN.createExtractor(args).setSource(in)
+						.extractTemplate(templatePath.getFileName().toString().replaceFirst("\\.[^.]*$", ""))
+						.write(templatePath);
+				MAIN.LOGGER.info("Template saved into {}", template);
 			}
+			if (MAIN.isBatch(in)) {
+				MAIN.extractTablesInBatch(args, in, out);
+				return;
+			}
+			MAIN.LOGGER.info("Extraction started with file {} into {}", in, out);
+			MAIN.extractTables(MAIN.createExtractor(args).setSource(in), args, out);
 		} catch (Exception e) {
 			MAIN.LOGGER.error(null, e);
 		}
 		MAIN.LOGGER.info("Extraction ended");
 	}
 
+	/**
+	 * @param extractor with its source
+	 * @param args
+	 * @param out
+	 * @return number of written tables
+	 * @throws IOException
+	 */
+	private static int extractTables(final PDFTableExtractor extractor, final String[] args, final String out)
+			throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), "UTF-8"))) {
+			// begin parsing pdf file, tables are written page by page
+			return extractor.extract(MAIN.createTableWriter(args, writer));
+		}
+	}
+
+	/**
+	 * Extract all pdf files matched by in with a pool of workers in this JVM, one
+	 * output file per pdf file in directory out
+	 *
+	 * @param args
+	 * @param in   directory or glob. Ex: "/Users/thoqbk/pdf/*.pdf"
+	 * @param out  output directory
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void extractTablesInBatch(final String[] args, final String in, final String out)
+			throws IOException, InterruptedException {
+		List<Path> files = MAIN.getInputFiles(in);
+		Path outDirectory = Files.createDirectories(Paths.get(out));
+		int threads = MAIN.getThreads(args);
+		MAIN.LOGGER.info("Batch extraction started with {} file(s) into {} using {} thread(s)", files.size(),
+				outDirectory, threads);
+
+		AtomicInteger documentsCount = new AtomicInteger();
+		AtomicInteger pagesCount = new AtomicInteger();
+		AtomicInteger tablesCount = new AtomicInteger();
+		AtomicInteger failuresCount = new AtomicInteger();
+		long startTime = System.nanoTime();
+		// options and template are parsed once, each file gets its own session
+		ExtractionEngine engine = MAIN.createExtractor(args).toEngine();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Path file : files) {
+				executor.execute(() -> {
+					String fileName = file.getFileName().toString();
+					String outFile = outDirectory.resolve(fileName.replaceFirst("(?i)\\.pdf$", "") + "." + MAIN.getFormat(args))
+							.toString();
+					try {
+						int[] documentPagesCount = { 0 };
+						PDFTableExtractor extractor = engine.newExtractor().setSource(file)
+								.setListener(new ExtractionListener() {
+									@Override
+									public void documentLoaded(final long duration, final long bytesCount,
+											final int pagesCount) {
+										documentPagesCount[0] = pagesCount;
+									}
+								});
+						tablesCount.addAndGet(MAIN.extractTables(extractor, args, outFile));
+						pagesCount.addAndGet(documentPagesCount[0]);
+						documentsCount.incrementAndGet();
+					} catch (Exception e) {
+						failuresCount.incrementAndGet();
+						MAIN.LOGGER.error("Extraction failed with file " + file, e);
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		double seconds = Math.max(System.nanoTime() - startTime, 1) / 1e9;
+		MAIN.LOGGER.info(String.format(
+				"Batch extraction ended: %d document(s), %d page(s), %d table(s), %d failure(s) in %.2f s. %.2f documents/s, %.2f pages/s",
+				documentsCount.get(), pagesCount.get(), tablesCount.get(), failuresCount.get(), seconds,
+				documentsCount.get() / seconds, pagesCount.get() / seconds));
+	}
+
 	private static String getArg(final String[] args, final String name) {
 		return MAIN.getArg(args, name, null);
 	}
@@ -145,6 +281,14 @@ public class MAIN {
 		return MAIN.getInts(args, "ep");
 	}
 
+	static String getFormat(final String[] args) {
+		String retVal = MAIN.getArg(args, "f", "html");
+		if (!"html".equals(retVal) && !"csv".equals(retVal) && !"jsonl".equals(retVal)) {
+			throw new RuntimeException("Invalid argument (-f): " + retVal);
+		}
+		return retVal;
+	}
+
 	private static String getIn(final String[] args) {
 		String retVal = MAIN.getArg(args, "in", null);
 		if (retVal == null) {
@@ -153,6 +297,37 @@ public class MAIN {
 		return retVal;
 	}
 
+	/**
+	 * All pdf files in directory in, or files matched by glob in. Glob is only
+	 * supported in the file name part. Ex: "/Users/thoqbk/pdf/sample-*.pdf"
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<Path> getInputFiles(final String in) throws IOException {
+		Path inPath = Paths.get(in);
+		Path directory;
+		PathMatcher matcher;
+		if (Files.isDirectory(inPath)) {
+			directory = inPath;
+			matcher = FileSystems.getDefault().getPathMatcher("glob:*.{pdf,PDF}");
+		} else {
+			directory = inPath.getParent() != null ? inPath.getParent() : Paths.get(".");
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + inPath.getFileName());
+		}
+		List<Path> retVal = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				if (Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+					retVal.add(file);
+				}
+			}
+		}
+		Collections.sort(retVal);
+		return retVal;
+	}
+
 	private static List<Integer> getInts(final String[] args, final String name) {
 		List<Integer> retVal = new ArrayList<>();
 		String intsInString = MAIN.getArg(args, name);
@@ -181,12 +356,54 @@ public class MAIN {
 		return MAIN.getInts(args, "p");
 	}
 
+	private static int getQueue(final String[] args, final int threads) {
+		List<Integer> queue = MAIN.getInts(args, "queue");
+		if (queue.isEmpty()) {
+			return 2 * threads;
+		} else if (queue.size() > 1 || queue.get(0) < 0) {
+			throw new RuntimeException("Invalid argument (-queue): " + queue);
+		}
+		return queue.get(0);
+	}
+
+	private static int getThreads(final String[] args) {
+		List<Integer> threads = MAIN.getInts(args, "threads");
+		if (threads.isEmpty()) {
+			return Runtime.getRuntime().availableProcessors();
+		} else if (threads.size() > 1 || threads.get(0) < 1) {
+			throw new RuntimeException("Invalid argument (-threads): " + threads);
+		}
+		return threads.get(0);
+	}
+
+	private static Duration getTimeout(final String[] args) {
+		List<Integer> timeout = MAIN.getInts(args, "timeout");
+		if (timeout.isEmpty()) {
+			return null;
+		} else if (timeout.size() > 1 || timeout.get(0) < 1) {
+			throw new RuntimeException("Invalid argument (-timeout): " + timeout);
+		}
+		return Duration.ofSeconds(timeout.get(0));
+	}
+
+	private static boolean isBatch(final String in) {
+		return Files.isDirectory(Paths.get(in)) || in.matches(".*[*?\\[{].*");
+	}
+
 	/**
-	 * -in: source <br/>
-	 * -out: target <br/>
+	 * -in: source, a pdf file or a directory/glob for batch mode <br/>
+	 * -out: target, an output directory in batch mode <br/>
+	 * -threads: number of workers in batch mode, concurrent extractions in server
+	 * mode <br/>
+	 * -server: serve extractions over HTTP on this port <br/>
+	 * -queue: requests waiting for a worker in server mode <br/>
+	 * -timeout: seconds before an extraction is stopped <br/>
+	 * -f: output format: html (default), csv or jsonl <br/>
+	 * -template: layout template file, learned from -in if it doesn't exist <br/>
 	 * -el: except lines. Ex: 1,2,3-1,6@8 #line 6 in page 8 <br/>
 	 * -p: page <br/>
 	 * -ep: except page <br/>
+	 * -region: only glyphs in this rectangle. Ex: 0,100,612,500 <br/>
 	 * -h: help
 	 *
 	 * @param args
@@ -194,6 +411,8 @@ public class MAIN {
 	public static void main(final String[] args) {
 		if (args.length < 1 || "-h".equals(args[0])) {
 			MAIN.printHelp();
+		} else if (MAIN.getArg(args, "server") != null) {
+			MAIN.startServer(args);
 		} else {
 			MAIN.extractTables(args);
 		}
@@ -203,10 +422,40 @@ public class MAIN {
 		StringBuilder help = new StringBuilder();
 		help.append("Argument list: \n")
 				.append("\t-in: (required) absolute pdf location path. Ex: \"/Users/thoqbk/table.pdf\"\n")
+				.append("\t    batch mode: a directory or a glob in the file name. Ex: \"/Users/thoqbk/pdf/*.pdf\"\n")
 				.append("\t-out: (required) absolute output file. Ex: \"/Users/thoqbk/table.html\"\n")
+				.append("\t    batch mode: an output directory, one file per pdf. Ex: \"/Users/thoqbk/html\"\n")
+				.append("\t-threads: number of workers in batch mode, concurrent extractions in server mode. Default is the number of processors\n")
+				.append("\t-server: serve extractions over HTTP on this port: POST a pdf file to /extract?f=csv&el=1,-1\n")
+				.append("\t-queue: requests waiting for a worker in server mode, others get HTTP 429. Default is twice -threads\n")
+				.append("\t-timeout: seconds before an extraction is stopped. Default is unlimited, 60 in server mode\n")
+				.append("\t-f: output format: html (default), csv (RFC 4180, first field is the page) or jsonl (one row per line)\n")
+				.append("\t-template: layout template file (column ranges and skipped lines). If it doesn't exist, it is learned from -in and saved\n")
 				.append("\t-el: skip lines. For example, to skip lines 1,2,3 and -1 (last line) in all pages and line 4 in page 8, the value should be: \"1,2,3,-1,4@8\"\n")
 				.append("\t-p: only parse these pages. Ex: 1,2,3\n")
-				.append("\t-ep: all pages except these pages. Ex: 1,2\n").append("\t-h: help\n").append("---");
+				.append("\t-ep: all pages except these pages. Ex: 1,2\n")
+				.append("\t-region: only parse glyphs in this rectangle: x,y,width,height in points from the top left corner of pages. Ex: 0,100,612,500\n")
+				.append("\t-h: help\n").append("---");
 		MAIN.LOGGER.info(help.toString());
 	}
+
+	private static void startServer(final String[] args) {
+		List<Integer> port = MAIN.getInts(args, "server");
+		if (port.size() != 1 || port.get(0) < 0) {
+			throw new RuntimeException("Invalid argument (-server): " + port);
+		}
+		int threads = MAIN.getThreads(args);
+		try {
+			ExtractionServer server = new ExtractionServer(new InetSocketAddress(port.get(0)), threads,
+					MAIN.getQueue(args, threads));
+			Duration timeout = MAIN.getTimeout(args);
+			if (timeout != null) {
+				server.setTimeout(timeout);
+			}
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+			server.start();
+		} catch (IOException ex) {
+			throw new RuntimeException("Start server fail", ex);
+		}
+	}
 }
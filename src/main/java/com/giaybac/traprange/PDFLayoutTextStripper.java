@@ -1,17 +1,39 @@
 package com.giaybac.traprange;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
 import org.apache.pdfbox.text.TextPositionComparator;
 
+/**
+ * Placement flags of a glyph. One instance is reused by CharacterFactory for
+ * all glyphs of a line
+ */
 class Character {
 
 	private char characterValue;
@@ -21,20 +43,6 @@ class Character {
 	private boolean isCharacterPartOfPreviousWord;
 	private boolean isFirstCharacterOfAWord;
 
-	public Character(final char characterValue, final int index, final boolean isCharacterPartOfPreviousWord,
-			final boolean isFirstCharacterOfAWord, final boolean isCharacterAtTheBeginningOfNewLine,
-			final boolean isCharacterPartOfASentence) {
-		this.characterValue = characterValue;
-		this.index = index;
-		this.isCharacterPartOfPreviousWord = isCharacterPartOfPreviousWord;
-		this.isFirstCharacterOfAWord = isFirstCharacterOfAWord;
-		this.isCharacterAtTheBeginningOfNewLine = isCharacterAtTheBeginningOfNewLine;
-		this.isCharacterCloseToPreviousWord = isCharacterPartOfASentence;
-		if (PDFLayoutTextStripper.DEBUG) {
-			System.out.println(this.toString());
-		}
-	}
-
 	public char getCharacterValue() {
 		return this.characterValue;
 	}
@@ -59,6 +67,20 @@ class Character {
 		return this.isFirstCharacterOfAWord;
 	}
 
+	public void set(final char characterValue, final int index, final boolean isCharacterPartOfPreviousWord,
+			final boolean isFirstCharacterOfAWord, final boolean isCharacterAtTheBeginningOfNewLine,
+			final boolean isCharacterCloseToPreviousWord) {
+		this.characterValue = characterValue;
+		this.index = index;
+		this.isCharacterPartOfPreviousWord = isCharacterPartOfPreviousWord;
+		this.isFirstCharacterOfAWord = isFirstCharacterOfAWord;
+		this.isCharacterAtTheBeginningOfNewLine = isCharacterAtTheBeginningOfNewLine;
+		this.isCharacterCloseToPreviousWord = isCharacterCloseToPreviousWord;
+		if (PDFLayoutTextStripper.DEBUG) {
+			System.out.println(this.toString());
+		}
+	}
+
 	public void setIndex(final int index) {
 		this.index = index;
 	}
@@ -79,72 +101,43 @@ class Character {
 
 }
 
+/**
+ * Computes placement flags of the glyphs of one line, in order. The gap to the
+ * previous glyph is computed once per glyph and the same Character is returned
+ * by every call
+ */
 class CharacterFactory {
 
+	private final Character character = new Character();
 	private boolean firstCharacterOfLineFound;
-	private boolean isCharacterCloseToPreviousWord;
-	private boolean isFirstCharacterOfAWord;
-	private TextPosition previousTextPosition;
-
-	public CharacterFactory(final boolean firstCharacterOfLineFound) {
-		this.firstCharacterOfLineFound = firstCharacterOfLineFound;
-	}
 
+	/**
+	 * The returned Character is overwritten by the next call
+	 *
+	 * @param textPosition
+	 * @param previousTextPosition
+	 * @return
+	 */
 	public Character createCharacterFromTextPosition(final TextPosition textPosition,
 			final TextPosition previousTextPosition) {
-		this.setPreviousTextPosition(previousTextPosition);
-		boolean characterPartOfPreviousWord = this.isCharacterPartOfPreviousWord(textPosition);
-		this.isFirstCharacterOfAWord = this.isFirstCharacterOfAWord(textPosition);
-		boolean isCharacterAtTheBeginningOfNewLine = this.isCharacterAtTheBeginningOfNewLine(textPosition);
-		this.isCharacterCloseToPreviousWord = this.isCharacterCloseToPreviousWord(textPosition);
-		char character = this.getCharacterFromTextPosition(textPosition);
-		int index = (int) textPosition.getX() / PDFLayoutTextStripper.OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT;
-		return new Character(character, index, characterPartOfPreviousWord, this.isFirstCharacterOfAWord,
-				isCharacterAtTheBeginningOfNewLine, this.isCharacterCloseToPreviousWord);
-	}
-
-	private char getCharacterFromTextPosition(final TextPosition textPosition) {
-		String string = textPosition.getUnicode();
-		char character = string.charAt(0);
-		return character;
-	}
-
-	private TextPosition getPreviousTextPosition() {
-		return this.previousTextPosition;
-	}
-
-	private boolean isCharacterAtTheBeginningOfNewLine(final TextPosition textPosition) {
-		if (!this.firstCharacterOfLineFound) {
-			return true;
-		}
-		TextPosition previousTextPosition = this.getPreviousTextPosition();
-		float previousTextYPosition = previousTextPosition.getY();
-		return Math.round(textPosition.getY()) < Math.round(previousTextYPosition);
-	}
-
-	private boolean isCharacterCloseToPreviousWord(final TextPosition textPosition) {
-		if (!this.firstCharacterOfLineFound) {
-			return false;
-		}
-		double numberOfSpaces = this.numberOfSpacesBetweenTwoCharacters(this.previousTextPosition, textPosition);
-		return numberOfSpaces > 1 && numberOfSpaces <= PDFLayoutTextStripper.OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT;
-	}
-
-	private boolean isCharacterPartOfPreviousWord(final TextPosition textPosition) {
-		TextPosition previousTextPosition = this.getPreviousTextPosition();
-		if (" ".equals(previousTextPosition.getUnicode())) {
-			return false;
-		}
 		double numberOfSpaces = this.numberOfSpacesBetweenTwoCharacters(previousTextPosition, textPosition);
-		return numberOfSpaces <= 1;
-	}
-
-	private boolean isFirstCharacterOfAWord(final TextPosition textPosition) {
-		if (!this.firstCharacterOfLineFound) {
-			return true;
+		boolean isCharacterPartOfPreviousWord = !" ".equals(previousTextPosition.getUnicode()) && numberOfSpaces <= 1;
+		boolean isFirstCharacterOfAWord = true;
+		boolean isCharacterAtTheBeginningOfNewLine = true;
+		boolean isCharacterCloseToPreviousWord = false;
+		if (this.firstCharacterOfLineFound) {
+			isCharacterAtTheBeginningOfNewLine = Math.round(textPosition.getY()) < Math
+					.round(previousTextPosition.getY());
+			isFirstCharacterOfAWord = numberOfSpaces > 1 || isCharacterAtTheBeginningOfNewLine;
+			isCharacterCloseToPreviousWord = numberOfSpaces > 1
+					&& numberOfSpaces <= PDFLayoutTextStripper.OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT;
 		}
-		double numberOfSpaces = this.numberOfSpacesBetweenTwoCharacters(this.previousTextPosition, textPosition);
-		return numberOfSpaces > 1 || this.isCharacterAtTheBeginningOfNewLine(textPosition);
+		this.firstCharacterOfLineFound = true;
+		char characterValue = textPosition.getUnicode().charAt(0);
+		int index = (int) textPosition.getX() / PDFLayoutTextStripper.OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT;
+		this.character.set(characterValue, index, isCharacterPartOfPreviousWord, isFirstCharacterOfAWord,
+				isCharacterAtTheBeginningOfNewLine, isCharacterCloseToPreviousWord);
+		return this.character;
 	}
 
 	private double numberOfSpacesBetweenTwoCharacters(final TextPosition textPosition1,
@@ -156,39 +149,34 @@ class CharacterFactory {
 		return numberOfSpaces;
 	}
 
-	private void setPreviousTextPosition(final TextPosition previousTextPosition) {
-		this.previousTextPosition = previousTextPosition;
-	}
-
 }
 
 /**
- * Java doc to be completed
- *
- * @author Jonathan Link
- *
+ * Places the sorted glyphs of one page into TextLines. Lines are produced one
+ * by one: a line is returned as soon as no later glyph can land in it
  */
-public class PDFLayoutTextStripper extends PDFTextStripper {
-
-	public static final boolean DEBUG = false;
-	public static final int OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT = 4;
+class PageLayout implements Iterator<TextLine> {
 
-	private double currentPageWidth;
+	private int articleIdx;
+	private final List<List<TextPosition>> articles;
+	private final ArrayDeque<TextLine> lines = new ArrayDeque<>();
+	private final int pageWidth;
 	private TextPosition previousTextPosition;
-	private List<TextLine> textLineList;
+	private Iterator<TextPosition> textIterator;
+	private final List<TextPosition> textPositionList = new ArrayList<>();
 
 	/**
-	 * Constructor
+	 * @param articles  glyphs of each article, sorted by TextPositionComparator
+	 * @param pageWidth
 	 */
-	public PDFLayoutTextStripper() throws IOException {
-		super();
-		this.previousTextPosition = null;
-		this.textLineList = new ArrayList<>();
+	public PageLayout(final List<List<TextPosition>> articles, final int pageWidth) {
+		this.articles = articles;
+		this.pageWidth = pageWidth;
 	}
 
 	private TextLine addNewLine() {
-		TextLine textLine = new TextLine(this.getCurrentPageWidth());
-		this.textLineList.add(textLine);
+		TextLine textLine = new TextLine(this.pageWidth);
+		this.lines.add(textLine);
 		return textLine;
 	}
 
@@ -198,8 +186,31 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 		}
 	}
 
-	private int getCurrentPageWidth() {
-		return (int) Math.round(this.currentPageWidth);
+	/**
+	 * Consume glyphs until a line is completed or all articles are consumed
+	 */
+	private void fill() {
+		while (this.lines.isEmpty()) {
+			if (this.textIterator != null && this.textIterator.hasNext()) {
+				TextPosition textPosition = this.textIterator.next();
+				int numberOfNewLines = this.getNumberOfNewLinesFromPreviousTextPosition(textPosition);
+				if (numberOfNewLines != 0) {
+					this.writeTextPositionList(this.textPositionList);
+					this.createNewEmptyNewLines(numberOfNewLines);
+				}
+				this.textPositionList.add(textPosition);
+				this.setPreviousTextPosition(textPosition);
+			} else {
+				// end of the article
+				if (!this.textPositionList.isEmpty()) {
+					this.writeTextPositionList(this.textPositionList);
+				}
+				if (this.articleIdx == this.articles.size()) {
+					return;
+				}
+				this.textIterator = this.articles.get(this.articleIdx++).iterator();
+			}
+		}
 	}
 
 	private int getNumberOfNewLinesFromPreviousTextPosition(final TextPosition textPosition) {
@@ -228,26 +239,254 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 		return this.previousTextPosition;
 	}
 
-	private List<TextLine> getTextLineList() {
-		return this.textLineList;
+	@Override
+	public boolean hasNext() {
+		this.fill();
+		return !this.lines.isEmpty();
+	}
+
+	@Override
+	public TextLine next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return this.lines.poll();
+	}
+
+	private void setPreviousTextPosition(final TextPosition setPreviousTextPosition) {
+		this.previousTextPosition = setPreviousTextPosition;
+	}
+
+	private void writeLine(final List<TextPosition> textPositionList) {
+		if (textPositionList.size() > 0) {
+			TextLine textLine = this.addNewLine();
+			CharacterFactory characterFactory = new CharacterFactory();
+			for (TextPosition textPosition : textPositionList) {
+				Character character = characterFactory.createCharacterFromTextPosition(textPosition,
+						this.getPreviousTextPosition());
+				textLine.writeCharacterAtIndex(character);
+				this.setPreviousTextPosition(textPosition);
+			}
+		} else {
+			this.addNewLine(); // white line
+		}
+	}
+
+	private void writeTextPositionList(final List<TextPosition> textPositionList) {
+		this.writeLine(textPositionList);
+		textPositionList.clear();
+	}
+
+}
+
+/**
+ * Java doc to be completed
+ *
+ * @author Jonathan Link
+ *
+ */
+public class PDFLayoutTextStripper extends PDFTextStripper {
+
+	public static final boolean DEBUG = false;
+	public static final int OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT = 4;
+
+	private double currentPageWidth;
+	private ExecutorService executor;
+	// set on parallel workers: receives the text of each page once it is written
+	private BiConsumer<Integer, String> pageConsumer;
+	// not null while getLines() strips its page: layouts are kept instead of written
+	private List<PageLayout> pageLayouts;
+	private int parallelism = 1;
+
+	/**
+	 * Constructor
+	 */
+	public PDFLayoutTextStripper() throws IOException {
+		super();
+	}
+
+	/**
+	 * Worker of the parallel mode, with its own layout state and the settings of
+	 * this stripper that change the output. Pages are set by the caller
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private PDFLayoutTextStripper createWorker() throws IOException {
+		PDFLayoutTextStripper retVal = new PDFLayoutTextStripper();
+		retVal.setAddMoreFormatting(this.getAddMoreFormatting());
+		retVal.setArticleEnd(this.getArticleEnd());
+		retVal.setArticleStart(this.getArticleStart());
+		retVal.setAverageCharTolerance(this.getAverageCharTolerance());
+		retVal.setDropThreshold(this.getDropThreshold());
+		retVal.setIndentThreshold(this.getIndentThreshold());
+		retVal.setLineSeparator(this.getLineSeparator());
+		retVal.setPageEnd(this.getPageEnd());
+		retVal.setPageStart(this.getPageStart());
+		retVal.setParagraphEnd(this.getParagraphEnd());
+		retVal.setParagraphStart(this.getParagraphStart());
+		retVal.setShouldSeparateByBeads(this.getSeparateByBeads());
+		retVal.setSortByPosition(this.getSortByPosition());
+		retVal.setSpacingTolerance(this.getSpacingTolerance());
+		retVal.setSuppressDuplicateOverlappingText(this.getSuppressDuplicateOverlappingText());
+		retVal.setWordSeparator(this.getWordSeparator());
+		return retVal;
+	}
+
+	@Override
+	protected void endPage(final PDPage page) throws IOException {
+		super.endPage(page);
+		if (this.pageConsumer != null) {
+			StringWriter pageOutput = (StringWriter) super.getOutput();
+			this.pageConsumer.accept(this.getCurrentPageNo() - 1, pageOutput.toString());
+			pageOutput.getBuffer().setLength(0);
+		}
+	}
+
+	private int getCurrentPageWidth() {
+		return (int) Math.round(this.currentPageWidth);
+	}
+
+	/**
+	 * Lines of one page, glyphs are stripped and sorted by this call and placed
+	 * into lines while the stream is consumed. Lines are the ones written by
+	 * getText(), without line separators
+	 *
+	 * @param document
+	 * @param pageIdx  0-based
+	 * @return
+	 * @throws IOException
+	 */
+	public Stream<String> getLines(final PDDocument document, final int pageIdx) throws IOException {
+		int startPage = this.getStartPage();
+		int endPage = this.getEndPage();
+		this.pageLayouts = new ArrayList<>();
+		try {
+			this.setStartPage(pageIdx + 1);
+			this.setEndPage(pageIdx + 1);
+			this.writeText(document, Writer.nullWriter());
+			if (this.pageLayouts.isEmpty()) {
+				return Stream.empty();
+			}
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.pageLayouts.get(0),
+					Spliterator.ORDERED | Spliterator.NONNULL), false).map(TextLine::getLine);
+		} finally {
+			this.pageLayouts = null;
+			this.setStartPage(startPage);
+			this.setEndPage(endPage);
+		}
 	}
 
-	private void iterateThroughTextList(final Iterator<TextPosition> textIterator) {
-		List<TextPosition> textPositionList = new ArrayList<>();
+	/**
+	 * Text of each page between startPage and endPage, in page order. Pages are
+	 * laid out by parallel workers on contiguous page ranges, each worker loads
+	 * its own copy of the document. A page text is available as soon as its page
+	 * is written, following pages may still be in progress.
+	 *
+	 * The stream should be closed if it is not fully consumed
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public Stream<String> getPageTexts(final Path path) throws IOException {
+		return this.getPageTexts(path, "");
+	}
+
+	/**
+	 * Same as getPageTexts(Path) for an encrypted file. Start and end bookmarks
+	 * belong to another document, they are not supported
+	 *
+	 * @param path
+	 * @param password
+	 * @return
+	 * @throws IOException
+	 */
+	public Stream<String> getPageTexts(final Path path, final String password) throws IOException {
+		if (this.getStartBookmark() != null || this.getEndBookmark() != null) {
+			throw new IllegalArgumentException("Bookmarks are not supported when reading a file");
+		}
+		int firstPageIdx = Math.max(this.getStartPage(), 1) - 1;
+		int lastPageIdx;
+		try (PDDocument document = PDDocument.load(path.toFile(), password)) {
+			lastPageIdx = Math.min(this.getEndPage(), document.getNumberOfPages()) - 1;
+		}
+		List<CompletableFuture<String>> pageTexts = new ArrayList<>();
+		for (int pageIdx = firstPageIdx; pageIdx <= lastPageIdx; pageIdx++) {
+			pageTexts.add(new CompletableFuture<>());
+		}
+		if (pageTexts.isEmpty()) {
+			return Stream.empty();
+		}
+		int parallelism = !this.isParallel() ? 1
+				: this.parallelism > 1 ? this.parallelism : Runtime.getRuntime().availableProcessors();
+		int chunksCount = Math.min(parallelism, pageTexts.size());
+		ExecutorService executorService = this.executor != null ? this.executor
+				: Executors.newFixedThreadPool(chunksCount);
+		AtomicBoolean cancelled = new AtomicBoolean();
+		for (int chunkIdx = 0; chunkIdx < chunksCount; chunkIdx++) {
+			final int fromPageIdx = firstPageIdx + chunkIdx * pageTexts.size() / chunksCount;
+			final int toPageIdx = firstPageIdx + (chunkIdx + 1) * pageTexts.size() / chunksCount;
+			final List<CompletableFuture<String>> chunk = pageTexts.subList(fromPageIdx - firstPageIdx,
+					toPageIdx - firstPageIdx);
+			executorService.execute(() -> this.writePages(path, password, fromPageIdx, chunk, cancelled));
+		}
+		if (executorService != this.executor) {
+			// threads end with their chunk
+			executorService.shutdown();
+		}
+		return pageTexts.stream().map(pageText -> {
+			try {
+				return pageText.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Parse pdf file fail", ex);
+			} catch (ExecutionException ex) {
+				throw new RuntimeException("Parse pdf file fail", ex.getCause());
+			}
+		}).onClose(() -> {
+			cancelled.set(true);
+			if (executorService != this.executor) {
+				executorService.shutdownNow();
+			}
+		});
+	}
+
+	/**
+	 * Same as getText(PDDocument), pages are laid out in parallel when parallelism
+	 * or executor is set. See getPageTexts()
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public String getText(final Path path) throws IOException {
+		return this.getText(path, "");
+	}
 
-		while (textIterator.hasNext()) {
-			TextPosition textPosition = (TextPosition) textIterator.next();
-			int numberOfNewLines = this.getNumberOfNewLinesFromPreviousTextPosition(textPosition);
-			if (numberOfNewLines != 0) {
-				this.writeTextPositionList(textPositionList);
-				this.createNewEmptyNewLines(numberOfNewLines);
+	/**
+	 * Same as getText(Path) for an encrypted file
+	 *
+	 * @param path
+	 * @param password
+	 * @return
+	 * @throws IOException
+	 */
+	public String getText(final Path path, final String password) throws IOException {
+		if (!this.isParallel()) {
+			try (PDDocument document = PDDocument.load(path.toFile(), password)) {
+				return this.getText(document);
 			}
-			textPositionList.add(textPosition);
-			this.setPreviousTextPosition(textPosition);
 		}
-		if (!textPositionList.isEmpty()) {
-			this.writeTextPositionList(textPositionList);
+		StringBuilder retVal = new StringBuilder();
+		try (Stream<String> pageTexts = this.getPageTexts(path, password)) {
+			pageTexts.forEachOrdered(retVal::append);
 		}
+		return retVal.toString();
+	}
+
+	private boolean isParallel() {
+		return this.parallelism > 1 || this.executor != null;
 	}
 
 	/**
@@ -260,8 +499,6 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 		if (pageRectangle != null) {
 			this.setCurrentPageWidth(pageRectangle.getWidth());
 			super.processPage(page);
-			this.previousTextPosition = null;
-			this.textLineList = new ArrayList<>();
 		}
 	}
 
@@ -269,8 +506,28 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 		this.currentPageWidth = currentPageWidth;
 	}
 
-	private void setPreviousTextPosition(final TextPosition setPreviousTextPosition) {
-		this.previousTextPosition = setPreviousTextPosition;
+	/**
+	 * Executor of parallel workers, it is not shut down by this stripper. If
+	 * parallelism is not set, pages are split in as many chunks as available
+	 * processors
+	 *
+	 * @param executor
+	 */
+	public void setExecutor(final ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Number of workers used by getText(Path) and getPageTexts(Path), default is
+	 * 1
+	 *
+	 * @param parallelism
+	 */
+	public void setParallelism(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+		}
+		this.parallelism = parallelism;
 	}
 
 	/*
@@ -282,23 +539,10 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 		Collections.sort(textList, comparator);
 	}
 
-	private void writeLine(final List<TextPosition> textPositionList) {
-		if (textPositionList.size() > 0) {
-			TextLine textLine = this.addNewLine();
-			boolean firstCharacterOfLineFound = false;
-			for (TextPosition textPosition : textPositionList) {
-				CharacterFactory characterFactory = new CharacterFactory(firstCharacterOfLineFound);
-				Character character = characterFactory.createCharacterFromTextPosition(textPosition,
-						this.getPreviousTextPosition());
-				textLine.writeCharacterAtIndex(character);
-				this.setPreviousTextPosition(textPosition);
-				firstCharacterOfLineFound = true;
-			}
-		} else {
-			this.addNewLine(); // white line
-		}
-	}
-
+	/**
+	 * Each line is written as soon as it is completed, flushing is left to the
+	 * caller
+	 */
 	@Override
 	protected void writePage() throws IOException {
 		List<List<TextPosition>> charactersByArticle = super.getCharactersByArticle();
@@ -309,44 +553,73 @@ public class PDFLayoutTextStripper extends PDFTextStripper {
 			} catch (java.lang.IllegalArgumentException e) {
 				System.err.println(e);
 			}
-			this.iterateThroughTextList(textList.iterator());
 		}
-		this.writeToOutputStream(this.getTextLineList());
-	}
-
-	private void writeTextPositionList(final List<TextPosition> textPositionList) {
-		this.writeLine(textPositionList);
-		textPositionList.clear();
+		if (this.pageLayouts != null) {
+			// article lists are reused by the next page
+			List<List<TextPosition>> articles = new ArrayList<>();
+			for (List<TextPosition> textList : charactersByArticle) {
+				articles.add(new ArrayList<>(textList));
+			}
+			this.pageLayouts.add(new PageLayout(articles, this.getCurrentPageWidth()));
+			return;
+		}
+		PageLayout pageLayout = new PageLayout(charactersByArticle, this.getCurrentPageWidth());
+		while (pageLayout.hasNext()) {
+			pageLayout.next().writeTo(super.getOutput());
+			super.getOutput().write('\n');
+		}
 	}
 
-	private void writeToOutputStream(final List<TextLine> textLineList) throws IOException {
-		for (TextLine textLine : textLineList) {
-			char[] line = textLine.getLine().toCharArray();
-			super.getOutput().write(line);
-			super.getOutput().write('\n');
-			super.getOutput().flush();
+	/**
+	 * Lay out a chunk of pages on a worker, pages without media box complete with
+	 * an empty text as in getText(PDDocument)
+	 *
+	 * @param path
+	 * @param password
+	 * @param fromPageIdx first page of the chunk
+	 * @param pageTexts   one per page of the chunk
+	 * @param cancelled
+	 */
+	private void writePages(final Path path, final String password, final int fromPageIdx,
+			final List<CompletableFuture<String>> pageTexts, final AtomicBoolean cancelled) {
+		try (PDDocument document = PDDocument.load(path.toFile(), password)) {
+			PDFLayoutTextStripper worker = this.createWorker();
+			worker.setStartPage(fromPageIdx + 1);
+			worker.setEndPage(fromPageIdx + pageTexts.size());
+			worker.pageConsumer = (pageIdx, pageText) -> {
+				if (cancelled.get()) {
+					throw new CancellationException();
+				}
+				pageTexts.get(pageIdx - fromPageIdx).complete(pageText);
+			};
+			worker.writeText(document, new StringWriter());
+			for (CompletableFuture<String> pageText : pageTexts) {
+				pageText.complete("");
+			}
+		} catch (IOException | RuntimeException ex) {
+			for (CompletableFuture<String> pageText : pageTexts) {
+				pageText.completeExceptionally(ex);
+			}
 		}
 	}
 
 }
 
+/**
+ * Line of the page, one char per OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT. Chars are
+ * written in place into a char[] filled with spaces
+ */
 class TextLine {
 
 	private static final char SPACE_CHARACTER = ' ';
 	private int lastIndex;
-	private String line;
-	private int lineLength;
+	private final char[] line;
+	private final int lineLength;
 
 	public TextLine(final int lineLength) {
-		this.line = "";
 		this.lineLength = lineLength / PDFLayoutTextStripper.OUTPUT_SPACE_CHARACTER_WIDTH_IN_PT;
-		this.completeLineWithSpaces();
-	}
-
-	private void completeLineWithSpaces() {
-		for (int i = 0; i < this.getLineLength(); ++i) {
-			this.line += TextLine.SPACE_CHARACTER;
-		}
+		this.line = new char[Math.max(this.lineLength, 0)];
+		Arrays.fill(this.line, TextLine.SPACE_CHARACTER);
 	}
 
 	private int computeIndexForCharacter(final Character character) {
@@ -361,7 +634,7 @@ class TextLine {
 			if (isCharacterPartOfPreviousWord && !isCharacterAtTheBeginningOfNewLine) {
 				index = this.findMinimumIndexWithSpaceCharacterFromIndex(index);
 			} else if (isCharacterCloseToPreviousWord) {
-				if (this.line.charAt(index) != TextLine.SPACE_CHARACTER) {
+				if (this.line[index] != TextLine.SPACE_CHARACTER) {
 					index = index + 1;
 				} else {
 					index = this.findMinimumIndexWithSpaceCharacterFromIndex(index) + 1;
@@ -374,7 +647,7 @@ class TextLine {
 
 	private int findMinimumIndexWithSpaceCharacterFromIndex(final int index) {
 		int newIndex = index;
-		while (newIndex >= 0 && this.line.charAt(newIndex) == TextLine.SPACE_CHARACTER) {
+		while (newIndex >= 0 && this.line[newIndex] == TextLine.SPACE_CHARACTER) {
 			newIndex = newIndex - 1;
 		}
 		return newIndex + 1;
@@ -385,7 +658,7 @@ class TextLine {
 	}
 
 	public String getLine() {
-		return this.line;
+		return new String(this.line);
 	}
 
 	public int getLineLength() {
@@ -415,7 +688,7 @@ class TextLine {
 	}
 
 	private boolean isSpaceCharacterAtIndex(final int index) {
-		return this.line.charAt(index) != TextLine.SPACE_CHARACTER;
+		return this.line[index] != TextLine.SPACE_CHARACTER;
 	}
 
 	private void setLastIndex(final int lastIndex) {
@@ -426,10 +699,19 @@ class TextLine {
 		character.setIndex(this.computeIndexForCharacter(character));
 		int index = character.getIndex();
 		char characterValue = character.getCharacterValue();
-		if (this.indexIsInBounds(index) && this.line.charAt(index) == TextLine.SPACE_CHARACTER) {
-			this.line = this.line.substring(0, index) + characterValue
-					+ this.line.substring(index + 1, this.getLineLength());
+		if (this.indexIsInBounds(index) && this.line[index] == TextLine.SPACE_CHARACTER) {
+			this.line[index] = characterValue;
 		}
 	}
 
+	/**
+	 * Write the line without copying it into a String
+	 *
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeTo(final Writer writer) throws IOException {
+		writer.write(this.line);
+	}
+
 }
@@ -5,104 +5,345 @@
  */
 package com.giaybac.traprange;
 
-import java.io.ByteArrayOutputStream;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.text.TextPositionComparator;
+import org.apache.pdfbox.util.IterativeMergeSort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.giaybac.traprange.entity.Table;
 import com.giaybac.traprange.entity.TableCell;
 import com.giaybac.traprange.entity.TableRow;
+import com.giaybac.traprange.writer.TableWriter;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
+import com.google.common.io.CountingInputStream;
 
 /**
  *
  * @author Tho Mar 22, 2015 3:34:29 PM
  */
 public class PDFTableExtractor {
-	private static class TextPositionExtractor extends PDFTextStripper {
-
+	/**
+	 * Glyphs and line ranges of one extracted page, glyphs are sorted by .getY()
+	 * ASC
+	 */
+	private static class PageContent {
+		private final GlyphBuffer glyphs;
+		private final List<Range<Integer>> lineRanges;
 		private final int pageId;
-		private final List<TextPosition> textPositions = new ArrayList<>();
 
-		private TextPositionExtractor(final PDDocument document, final int pageId) throws IOException {
-			super();
-			super.setSortByPosition(true);
-			super.document = document;
+		private PageContent(final int pageId, final List<Range<Integer>> lineRanges, final GlyphBuffer glyphs) {
 			this.pageId = pageId;
+			this.lineRanges = lineRanges;
+			this.glyphs = glyphs;
 		}
+	}
+
+	/**
+	 * Builds one table per call of next(), column ranges have been calculated
+	 * before the iteration starts or come from a template. Pages are stripped in
+	 * one traversal of the page tree. Pages without content or over their own
+	 * budget are skipped, ExtractionStoppedException is thrown when the document
+	 * budget is exceeded
+	 */
+	private class TableIterator implements Iterator<Table> {
+		private final List<Range<Integer>> columnRanges;
+		private final DocumentExtractionEvent event;
+		private final GlyphCapture extractor;
+		private Table nextTable;
+		private final PageCursor pageCursor;
+		private final Iterator<Integer> pageIdIterator;
+		private final long startTime;
+		private int tablesCount;
+		private final TableWriter writer;
 
 		/**
-		 * and order by textPosition.getY() ASC
-		 *
-		 * @return
-		 * @throws IOException
+		 * @param extractor
+		 * @param pageIds      ordered ASC
+		 * @param columnRanges
+		 * @param startTime    of the extraction, reported once all tables are built
+		 * @param event        begun with the extraction
+		 * @param writer       nullable, see buildTable()
 		 */
-		private List<TextPosition> extract() throws IOException {
-			this.stripPage(this.pageId);
-			// sort
-			Collections.sort(this.textPositions, new Comparator<TextPosition>() {
-				@Override
-				public int compare(final TextPosition o1, final TextPosition o2) {
-					int retVal = 0;
-					if (o1.getY() < o2.getY()) {
-						retVal = -1;
-					} else if (o1.getY() > o2.getY()) {
-						retVal = 1;
-					}
-					return retVal;
+		private TableIterator(final GlyphCapture extractor, final List<Integer> pageIds,
+				final List<Range<Integer>> columnRanges, final long startTime, final DocumentExtractionEvent event,
+				final TableWriter writer) {
+			this.extractor = extractor;
+			this.pageCursor = new PageCursor(extractor.getDocument());
+			this.pageIdIterator = pageIds.iterator();
+			this.columnRanges = columnRanges;
+			this.startTime = startTime;
+			this.event = event;
+			this.writer = writer;
+		}
 
+		@Override
+		public boolean hasNext() {
+			int pageId = -1;
+			try {
+				while (this.nextTable == null && this.pageIdIterator.hasNext()) {
+					pageId = this.pageIdIterator.next();
+					PageContent pageContent = PDFTableExtractor.this.extractPage(this.extractor, pageId,
+							this.pageCursor.get(pageId), true);
+					if (pageContent != null && pageContent.glyphs.size() > 0) {
+						this.nextTable = PDFTableExtractor.this.buildTable(pageContent.pageId, pageContent.glyphs,
+								pageContent.lineRanges, this.columnRanges, this.writer);
+						this.tablesCount++;
+					}
 				}
+			} catch (IOException ex) {
+				PDFTableExtractor.this.closeDocument();
+				throw new RuntimeException("Parse pdf file fail", ex);
+			} catch (ExtractionBudget.ExceededException ex) {
+				// only thrown with a budget, page-only stops are handled by the capture
+				ExtractionBudget budget = PDFTableExtractor.this.budget;
+				budget.exceeded(pageId, ex);
+				PDFTableExtractor.this.closeDocument();
+				budget.checkStopped();
+			}
+			if (this.nextTable == null && PDFTableExtractor.this.document != null) {
+				PDFTableExtractor.this.closeDocument();
+				PDFTableExtractor.this.documentExtracted(this.startTime, this.event, false, this.tablesCount);
+			}
+			return this.nextTable != null;
+		}
+
+		@Override
+		public Table next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Table retVal = this.nextTable;
+			this.nextTable = null;
+			return retVal;
+		}
+	}
+
+	/**
+	 * Strips requested pages one by one with PDFTextStripper.processPage(), outside
+	 * of writeText(). No text is assembled or written
+	 */
+	private static class TextPositionExtractor extends PDFTextStripper implements GlyphCapture {
+
+		private final ExtractionBudget budget;
+		private GlyphBuffer glyphs;
+		private ExtractionBudget.PageBudget pageBudget;
+		// region of the current page, null to keep all glyphs
+		private Rectangle2D region;
+		private final Map<Integer, Rectangle2D> regions;
+
+		/**
+		 * @param document
+		 * @param budget   nullable
+		 * @param regions  glyphs outside the region of their page are skipped, pageIdx
+		 *                 -1 is the region of pages without their own
+		 * @throws IOException
+		 */
+		private TextPositionExtractor(final PDDocument document, final ExtractionBudget budget,
+				final Map<Integer, Rectangle2D> regions) throws IOException {
+			super();
+			super.setSortByPosition(true);
+			// without writeText() the current page number stays 0, processPage() skips
+			// pages before the start page
+			super.setStartPage(0);
+			super.document = document;
+			this.budget = budget;
+			this.regions = regions;
+		}
+
+		@Override
+		public GlyphBuffer extract(final int pageId, final PDPage page) throws IOException {
+			return GlyphCapture.extract(pageId, page, this.budget, this.regions, (glyphs, region, pageBudget) -> {
+				this.glyphs = glyphs;
+				this.region = region;
+				this.pageBudget = pageBudget;
+				this.processPage(page);
 			});
-			return this.textPositions;
 		}
 
-		public void stripPage(final int pageId) throws IOException {
-			this.setStartPage(pageId + 1);
-			this.setEndPage(pageId + 1);
-			try (Writer writer = new OutputStreamWriter(new ByteArrayOutputStream())) {
-				this.writeText(this.document, writer);
+		@Override
+		public PDDocument getDocument() {
+			return this.document;
+		}
+
+		@Override
+		protected void processTextPosition(final TextPosition text) {
+			if (this.pageBudget != null) {
+				this.pageBudget.glyphCaptured();
+			}
+			// same test as PDFTextStripperByArea, before glyphs are sorted and merged
+			if (this.region != null && !this.region.contains(text.getX(), text.getY())) {
+				return;
 			}
+			super.processTextPosition(text);
 		}
 
 		@Override
-		protected void writeString(final String string, final List<TextPosition> textPositions) throws IOException {
-			this.textPositions.addAll(textPositions);
+		protected void writePage() throws IOException {
+			for (List<TextPosition> textPositions : this.charactersByArticle) {
+				if (this.getSortByPosition()) {
+					// same order as PDFTextStripper.writePage()
+					TextPositionComparator comparator = new TextPositionComparator();
+					try {
+						Collections.sort(textPositions, comparator);
+					} catch (IllegalArgumentException ex) {
+						IterativeMergeSort.sort(textPositions, comparator);
+					}
+				}
+				for (TextPosition textPosition : textPositions) {
+					this.glyphs.add(textPosition.getX(), textPosition.getY(), textPosition.getWidth(),
+							textPosition.getHeight(), textPosition.getUnicode());
+				}
+			}
 		}
 	}
 
+	// budget of the running extraction, null otherwise. Reset with the document
+	private ExtractionBudget budget;
+	private ExtractionCache cache;
+	private CancellationToken cancellationToken;
 	private PDDocument document;
+	private String documentId;
+	private ExecutorService executor;
 	private final List<Integer> exceptedPages = new ArrayList<>();
 	// contains pages that will be extracted table content.
 	// If this variable doesn't contain any page, all pages will be extracted
 	private final List<Integer> extractedPages = new ArrayList<>();
 
+	private boolean glyphOnlyCapture;
 	private InputStream inputStream;
+	private ExtractionListener listener;
 	private final Logger logger = LoggerFactory.getLogger(PDFTableExtractor.class);
+	private long maxGlyphs;
+	private int maxPageGlyphs;
+	private MemoryUsageSetting memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
 	// contains avoided line idx-s for each page,
 	// if this multimap contains only one element and key of this element equals -1
 	// then all lines in extracted pages contains in multi-map value will be avoided
 	private final Multimap<Integer, Integer> pageNExceptedLinesMap = HashMultimap.create();
+	private Duration pageTimeout;
+
+	private int parallelism = 1;
 
 	private String password;
+	private Path path;
+	// crop region of each page, pageIdx -1 is the region of pages without their own
+	private final Map<Integer, Rectangle2D> regions = new HashMap<>();
+	private LayoutTemplate template;
+	private Duration timeout;
+
+	public PDFTableExtractor() {
+	}
+
+	/**
+	 * Copy of the options of the given extractor, without its source and document
+	 * id
+	 *
+	 * @param options
+	 */
+	PDFTableExtractor(final PDFTableExtractor options) {
+		this.cache = options.cache;
+		this.cancellationToken = options.cancellationToken;
+		this.executor = options.executor;
+		this.exceptedPages.addAll(options.exceptedPages);
+		this.extractedPages.addAll(options.extractedPages);
+		this.glyphOnlyCapture = options.glyphOnlyCapture;
+		this.listener = options.listener;
+		this.maxGlyphs = options.maxGlyphs;
+		this.maxPageGlyphs = options.maxPageGlyphs;
+		this.memoryUsageSetting = options.memoryUsageSetting;
+		this.pageNExceptedLinesMap.putAll(options.pageNExceptedLinesMap);
+		this.pageTimeout = options.pageTimeout;
+		this.parallelism = options.parallelism;
+		for (Map.Entry<Integer, Rectangle2D> region : options.regions.entrySet()) {
+			this.regions.put(region.getKey(), (Rectangle2D) region.getValue().clone());
+		}
+		this.template = options.template;
+		this.timeout = options.timeout;
+	}
+
+	private void addColumnRanges(final TrapRangeBuilder columnTrapRangeBuilder, final GlyphBuffer glyphs) {
+		for (int idx = 0; idx < glyphs.size(); idx++) {
+			columnTrapRangeBuilder.addRange((int) glyphs.getX(idx), (int) (glyphs.getX(idx) + glyphs.getWidth(idx)));
+		}
+	}
+
+	/**
+	 * @param table
+	 * @param row
+	 * @param writer nullable, the row is written instead of being added to the
+	 *               table
+	 * @throws IOException
+	 */
+	private void addRow(final Table table, final TableRow row, final TableWriter writer) throws IOException {
+		if (writer != null) {
+			writer.writeRow(row);
+		} else {
+			table.getRows().add(row);
+		}
+	}
+
+	/**
+	 * Pages without content are skipped. ExtractionBudget.ExceededException is
+	 * thrown when the document budget is exceeded, next pages must not be built
+	 *
+	 * @param tables
+	 * @param pageContent
+	 * @param columnRanges
+	 */
+	private void addTable(final List<Table> tables, final PageContent pageContent,
+			final List<Range<Integer>> columnRanges) {
+		if (pageContent.glyphs.size() == 0) {
+			return;
+		}
+		Table table;
+		try {
+			table = this.buildTable(pageContent.pageId, pageContent.glyphs, pageContent.lineRanges, columnRanges);
+		} catch (ExtractionBudget.ExceededException ex) {
+			// only thrown with a budget
+			if (this.budget.exceeded(pageContent.pageId, ex)) {
+				return;
+			}
+			throw ex;
+		}
+		tables.add(table);
+	}
 
 	/**
 	 * This page will be analyze and extract its table content
@@ -115,119 +356,212 @@ public class PDFTableExtractor {
 		return this;
 	}
 
-	private TableCell buildCell(final int columnIdx, final List<TextPosition> cellContent) {
-		Collections.sort(cellContent, new Comparator<TextPosition>() {
-			@Override
-			public int compare(final TextPosition o1, final TextPosition o2) {
-				int retVal = 0;
-				if (o1.getX() < o2.getX()) {
-					retVal = -1;
-				} else if (o1.getX() > o2.getX()) {
-					retVal = 1;
-				}
-				return retVal;
-			}
-		});
-		// String cellContentString = Joiner.on("").join(cellContent.stream().map(e ->
-		// e.getCharacter()).iterator());
-		StringBuilder cellContentBuilder = new StringBuilder();
-		for (TextPosition textPosition : cellContent) {
-			cellContentBuilder.append(textPosition.getUnicode());
-		}
-		String cellContentString = cellContentBuilder.toString();
-		return new TableCell(columnIdx, cellContentString);
-	}
-
 	/**
+	 * Glyphs idxes[from, to) of a row are ordered by x ASC, then each glyph is
+	 * added to the cell of the column enclosing it. Columns before the last filled
+	 * one get a cell, even empty. With a budget, cancellation and document timeout
+	 * are checked
 	 *
 	 * @param rowIdx
-	 * @param rowContent
-	 * @param columnTrapRanges
+	 * @param glyphs
+	 * @param idxes
+	 * @param from
+	 * @param to          exclusive
+	 * @param columnIndex
 	 * @return
 	 */
-	private TableRow buildRow(final int rowIdx, final List<TextPosition> rowContent,
-			final List<Range<Integer>> columnTrapRanges) {
+	private TableRow buildRow(final int rowIdx, final GlyphBuffer glyphs, final int[] idxes, final int from,
+			final int to, final TrapRangeIndex columnIndex) {
+		if (this.budget != null) {
+			this.budget.check();
+		}
 		TableRow retVal = new TableRow(rowIdx);
-		// Sort rowContent
-		Collections.sort(rowContent, new Comparator<TextPosition>() {
-			@Override
-			public int compare(final TextPosition o1, final TextPosition o2) {
-				int retVal = 0;
-				if (o1.getX() < o2.getX()) {
-					retVal = -1;
-				} else if (o1.getX() > o2.getX()) {
-					retVal = 1;
-				}
-				return retVal;
+		GlyphBuffer.sortIdxes(idxes, from, to, glyphs.getXs());
+		StringBuilder cellContentBuilder = new StringBuilder();
+		int cellColumnIdx = 0;
+		boolean hasContent = false;
+		for (int idx = from; idx < to; idx++) {
+			int glyphIdx = idxes[idx];
+			int columnIdx = columnIndex.indexOf((int) glyphs.getX(glyphIdx),
+					(int) (glyphs.getX(glyphIdx) + glyphs.getWidth(glyphIdx)), cellColumnIdx);
+			if (columnIdx < 0) {
+				// outside all columns
+				continue;
 			}
-		});
-		int idx = 0;
-		int columnIdx = 0;
-		List<TextPosition> cellContent = new ArrayList<>();
-		while (idx < rowContent.size()) {
-			TextPosition textPosition = rowContent.get(idx);
-			Range<Integer> columnTrapRange = columnTrapRanges.get(columnIdx);
-			Range<Integer> textRange = Range.closed((int) textPosition.getX(),
-					(int) (textPosition.getX() + textPosition.getWidth()));
-			if (columnTrapRange.encloses(textRange)) {
-				cellContent.add(textPosition);
-				idx++;
-			} else {
-				TableCell cell = this.buildCell(columnIdx, cellContent);
-				retVal.getCells().add(cell);
-				// next column: clear cell content
-				cellContent.clear();
-				columnIdx++;
+			// x ASC: columnIdx never decreases
+			while (cellColumnIdx < columnIdx) {
+				retVal.getCells().add(new TableCell(cellColumnIdx++, cellContentBuilder.toString()));
+				cellContentBuilder.setLength(0);
 			}
+			glyphs.appendUnicode(glyphIdx, cellContentBuilder);
+			hasContent = true;
 		}
-		if (!cellContent.isEmpty() && columnIdx < columnTrapRanges.size()) {
-			TableCell cell = this.buildCell(columnIdx, cellContent);
-			retVal.getCells().add(cell);
+		if (hasContent) {
+			retVal.getCells().add(new TableCell(cellColumnIdx, cellContentBuilder.toString()));
 		}
 		// return
 		return retVal;
 	}
 
 	/**
-	 * Texts in tableContent have been ordered by .getY() ASC
+	 * Glyphs have been ordered by y ASC. Each glyph is assigned to the row and the
+	 * column enclosing it by binary search on trap-ranges, glyphs outside all rows
+	 * or all columns are ignored
 	 *
 	 * @param pageIdx
-	 * @param tableContent
+	 * @param glyphs
 	 * @param rowTrapRanges
 	 * @param columnTrapRanges
 	 * @return
 	 */
-	private Table buildTable(final int pageIdx, final List<TextPosition> tableContent,
-			final List<Range<Integer>> rowTrapRanges, final List<Range<Integer>> columnTrapRanges) {
+	Table buildTable(final int pageIdx, final GlyphBuffer glyphs, final List<Range<Integer>> rowTrapRanges,
+			final List<Range<Integer>> columnTrapRanges) {
+		return this.buildTable(pageIdx, glyphs, rowTrapRanges, columnTrapRanges, null);
+	}
+
+	/**
+	 * With a writer, each row is written as soon as it is assembled and isn't
+	 * kept: the returned table has no rows
+	 *
+	 * @param pageIdx
+	 * @param glyphs
+	 * @param rowTrapRanges
+	 * @param columnTrapRanges
+	 * @param writer           nullable
+	 * @return
+	 */
+	private Table buildTable(final int pageIdx, final GlyphBuffer glyphs, final List<Range<Integer>> rowTrapRanges,
+			final List<Range<Integer>> columnTrapRanges, final TableWriter writer) {
+		long startTime = this.listener != null ? System.nanoTime() : 0;
+		TableAssemblyEvent event = new TableAssemblyEvent();
+		event.begin();
 		Table retVal = new Table(pageIdx, columnTrapRanges.size());
-		int idx = 0;
-		int rowIdx = 0;
-		List<TextPosition> rowContent = new ArrayList<>();
-		while (idx < tableContent.size()) {
-			TextPosition textPosition = tableContent.get(idx);
-			Range<Integer> rowTrapRange = rowTrapRanges.get(rowIdx);
-			Range<Integer> textRange = Range.closed((int) textPosition.getY(),
-					(int) (textPosition.getY() + textPosition.getHeight()));
-			if (rowTrapRange.encloses(textRange)) {
-				rowContent.add(textPosition);
-				idx++;
-			} else {
-				TableRow row = this.buildRow(rowIdx, rowContent, columnTrapRanges);
-				retVal.getRows().add(row);
-				// next row: clear rowContent
-				rowContent.clear();
-				rowIdx++;
+		int rowsCount = 0;
+		try {
+			if (writer != null) {
+				writer.beginTable(pageIdx, columnTrapRanges.size());
+			}
+			TrapRangeIndex rowIndex = new TrapRangeIndex(rowTrapRanges);
+			TrapRangeIndex columnIndex = new TrapRangeIndex(columnTrapRanges);
+			// glyphs of rows, row by row
+			int[] idxes = new int[glyphs.size()];
+			int idxesCount = 0;
+			int rowIdx = -1;
+			int rowStartIdx = 0;
+			for (int idx = 0; idx < glyphs.size(); idx++) {
+				int glyphRowIdx = rowIndex.indexOf((int) glyphs.getY(idx),
+						(int) (glyphs.getY(idx) + glyphs.getHeight(idx)), Math.max(rowIdx, 0));
+				if (glyphRowIdx < 0) {
+					// outside all rows
+					continue;
+				}
+				// y ASC: rowIdx never decreases
+				if (glyphRowIdx != rowIdx && idxesCount > rowStartIdx) {
+					TableRow row = this.buildRow(rowIdx, glyphs, idxes, rowStartIdx, idxesCount, columnIndex);
+					this.addRow(retVal, row, writer);
+					rowsCount++;
+					rowStartIdx = idxesCount;
+				}
+				rowIdx = glyphRowIdx;
+				idxes[idxesCount++] = idx;
+			}
+			// last row
+			if (idxesCount > rowStartIdx) {
+				TableRow row = this.buildRow(rowIdx, glyphs, idxes, rowStartIdx, idxesCount, columnIndex);
+				this.addRow(retVal, row, writer);
+				rowsCount++;
+			}
+			if (writer != null) {
+				writer.endTable();
 			}
+		} catch (IOException ex) {
+			throw new RuntimeException("Write tables fail", ex);
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = this.getDocumentId();
+			event.pageIdx = pageIdx;
+			event.glyphsCount = glyphs.size();
+			event.rowsCount = rowsCount;
+			event.columnsCount = columnTrapRanges.size();
+			event.commit();
 		}
-		// last row
-		if (!rowContent.isEmpty() && rowIdx < rowTrapRanges.size()) {
-			TableRow row = this.buildRow(rowIdx, rowContent, columnTrapRanges);
-			retVal.getRows().add(row);
+		if (this.listener != null) {
+			this.listener.tableBuilt(pageIdx, System.nanoTime() - startTime, rowsCount, columnTrapRanges.size());
 		}
+		// debug
+		this.logger.debug("Found " + rowsCount + " row(s) and " + columnTrapRanges.size()
+				+ " column(s) of a table in page " + pageIdx);
 		// return
 		return retVal;
 	}
 
+	private void closeDocument() {
+		if (this.document != null) {
+			try {
+				this.document.close();
+			} catch (IOException ex) {
+				this.logger.error(null, ex);
+			}
+			this.document = null;
+		}
+		this.budget = null;
+	}
+
+	private void commitTrapRangeEvent(final TrapRangeEvent event, final String kind, final int pageIdx,
+			final int glyphsCount, final int rangesCount) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = this.getDocumentId();
+			event.kind = kind;
+			event.pageIdx = pageIdx;
+			event.glyphsCount = glyphsCount;
+			event.rangesCount = rangesCount;
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return budget of setTimeout(), setPageTimeout(), setMaxGlyphs(),
+	 *         setMaxPageGlyphs() and setCancellationToken(), null if none is set
+	 */
+	private ExtractionBudget createBudget() {
+		if (this.timeout == null && this.pageTimeout == null && this.maxGlyphs <= 0 && this.maxPageGlyphs <= 0
+				&& this.cancellationToken == null) {
+			return null;
+		}
+		return new ExtractionBudget(this.timeout != null ? this.timeout.toNanos() : 0,
+				this.pageTimeout != null ? this.pageTimeout.toNanos() : 0, this.maxGlyphs, this.maxPageGlyphs,
+				this.cancellationToken);
+	}
+
+	private GlyphCapture createGlyphCapture(final PDDocument document) throws IOException {
+		return this.glyphOnlyCapture ? new GlyphCaptureEngine(document, this.budget, this.regions)
+				: new TextPositionExtractor(document, this.budget, this.regions);
+	}
+
+	/**
+	 * Report the end of an extraction to the flight recorder and the listener
+	 *
+	 * @param startTime
+	 * @param event
+	 * @param cached
+	 * @param tablesCount
+	 */
+	private void documentExtracted(final long startTime, final DocumentExtractionEvent event, final boolean cached,
+			final int tablesCount) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.document = this.getDocumentId();
+			event.cached = cached;
+			event.tablesCount = tablesCount;
+			event.commit();
+		}
+		if (this.listener != null) {
+			this.listener.documentExtracted(System.nanoTime() - startTime, tablesCount);
+		}
+	}
+
 	/**
 	 * Avoid a specific line in a specific page. LineIdx can be negative number, -1
 	 * is the last line
@@ -260,113 +594,490 @@ public class PDFTableExtractor {
 		return this;
 	}
 
+	/**
+	 * Tables of extractWithStatus(): if a timeout, a glyph ceiling or the
+	 * cancellation token stopped the extraction, tables of the pages extracted
+	 * before are returned
+	 *
+	 * @return
+	 */
 	public List<Table> extract() {
-		List<Table> retVal = new ArrayList<>();
-		Multimap<Integer, Range<Integer>> pageIdNLineRangesMap = LinkedListMultimap.create();
-		Multimap<Integer, TextPosition> pageIdNTextsMap = LinkedListMultimap.create();
+		return this.extractWithStatus().getTables();
+	}
+
+	/**
+	 * Write tables page by page with the given writer. Each row is written as
+	 * soon as it is assembled, tables are never built in memory: only the glyphs
+	 * of the current page are kept. See extractStream(),
+	 * ExtractionStoppedException is thrown when the document budget is exceeded
+	 *
+	 * @param writer
+	 * @return number of written tables
+	 */
+	public int extract(final TableWriter writer) {
+		int retVal = 0;
+		try (Stream<Table> tables = this.extractStream(writer)) {
+			writer.begin();
+			// tables are written while they are built, they have no rows
+			Iterator<Table> tableIterator = tables.iterator();
+			while (tableIterator.hasNext()) {
+				tableIterator.next();
+				retVal++;
+			}
+			writer.end();
+		} catch (IOException ex) {
+			throw new RuntimeException("Write tables fail", ex);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Strip one page and build its line ranges
+	 *
+	 * @param extractor
+	 * @param pageId
+	 * @param page
+	 * @param reported  false to skip listener calls and flight recorder events
+	 * @return null if the page has no content or is skipped
+	 * @throws IOException
+	 */
+	private PageContent extractPage(final GlyphCapture extractor, final int pageId, final PDPage page,
+			final boolean reported) throws IOException {
+		long startTime = reported && this.listener != null ? System.nanoTime() : 0;
+		PageCaptureEvent event = new PageCaptureEvent();
+		event.begin();
+		GlyphBuffer glyphs = extractor.extract(pageId, page);
+		if (glyphs == null) {
+			return null;
+		}
+		event.end();
+		if (reported && event.shouldCommit()) {
+			event.document = this.getDocumentId();
+			event.pageIdx = pageId;
+			event.glyphsCount = glyphs.size();
+			event.commit();
+		}
+		if (reported && this.listener != null) {
+			this.listener.pageStripped(pageId, System.nanoTime() - startTime, glyphs.size());
+		}
+		return this.getPageContent(pageId, glyphs, reported);
+	}
+
+	/**
+	 * Pages without content are skipped
+	 *
+	 * @param extractor
+	 * @param pageIds
+	 * @return
+	 * @throws IOException
+	 */
+	private List<PageContent> extractPages(final GlyphCapture extractor, final List<Integer> pageIds)
+			throws IOException {
+		List<PageContent> retVal = new ArrayList<>();
+		this.extractPages(extractor, pageIds, retVal::add, true);
+		return retVal;
+	}
+
+	/**
+	 * Each page is handed to pageContentConsumer as soon as it is stripped, in one
+	 * traversal of the page tree. When the budget stops the extraction, remaining
+	 * pages are not stripped
+	 *
+	 * @param extractor
+	 * @param pageIds             ordered ASC
+	 * @param pageContentConsumer
+	 * @param reported            false to skip listener calls and flight recorder
+	 *                            events
+	 * @throws IOException
+	 */
+	private void extractPages(final GlyphCapture extractor, final List<Integer> pageIds,
+			final Consumer<PageContent> pageContentConsumer, final boolean reported) throws IOException {
+		PageCursor pageCursor = new PageCursor(extractor.getDocument());
+		try {
+			for (int pageId : pageIds) {
+				PageContent pageContent = this.extractPage(extractor, pageId, pageCursor.get(pageId), reported);
+				if (pageContent != null) {
+					pageContentConsumer.accept(pageContent);
+				}
+			}
+		} catch (ExtractionBudget.ExceededException ex) {
+			// extraction stopped, recorded by the budget
+		}
+	}
+
+	/**
+	 * Split pageIds into contiguous chunks, each chunk is stripped by a worker on
+	 * its own document. The first chunk reuses the document already loaded, the
+	 * others load a copy which is not reported to the listener. Result keeps the
+	 * order of pageIds
+	 *
+	 * @param content   null if the source is a file
+	 * @param pageIds
+	 * @return
+	 * @throws IOException
+	 */
+	private List<PageContent> extractPagesInParallel(final byte[] content, final List<Integer> pageIds)
+			throws IOException {
+		int parallelism = this.parallelism > 1 ? this.parallelism : Runtime.getRuntime().availableProcessors();
+		int chunksCount = Math.min(parallelism, pageIds.size());
+		ExecutorService executorService = this.executor != null ? this.executor
+				: Executors.newFixedThreadPool(chunksCount);
+		try {
+			List<Future<List<PageContent>>> futures = new ArrayList<>();
+			for (int chunkIdx = 0; chunkIdx < chunksCount; chunkIdx++) {
+				final List<Integer> chunk = pageIds.subList(chunkIdx * pageIds.size() / chunksCount,
+						(chunkIdx + 1) * pageIds.size() / chunksCount);
+				if (chunkIdx == 0) {
+					// the main thread only waits for the workers: the loaded document is used by one worker
+					futures.add(executorService
+							.submit(() -> this.extractPages(this.createGlyphCapture(this.document), chunk)));
+				} else {
+					futures.add(executorService.submit(() -> {
+						try (PDDocument chunkDocument = this.loadDocument(content, false)) {
+							return this.extractPages(this.createGlyphCapture(chunkDocument), chunk);
+						}
+					}));
+				}
+			}
+			List<PageContent> retVal = new ArrayList<>();
+			for (Future<List<PageContent>> future : futures) {
+				retVal.addAll(future.get());
+			}
+			return retVal;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Parallel extraction interrupted", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new RuntimeException("Parse pdf file fail", ex.getCause());
+		} finally {
+			if (executorService != this.executor) {
+				executorService.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * extractStream() with backpressure: a table is built only when the subscriber
+	 * has requested it, so slow subscribers don't accumulate tables. The document
+	 * is loaded by the first request, then tables are built and delivered on the
+	 * executor. Without template, column trap-ranges of all pages are inferred
+	 * before the first table. Tables of a source are published to one subscriber
+	 * only
+	 *
+	 * @param executor runs blocking pdf parsing, use a dedicated executor rather
+	 *                 than the common fork join pool
+	 * @return
+	 */
+	public Flow.Publisher<Table> extractPublisher(final Executor executor) {
+		return new TablePublisher(this::extractStream, executor);
+	}
+
+	/**
+	 * Lazy version of extract(): tables are built page by page while the stream is
+	 * consumed. The first pass over the document only keeps column trap-ranges of
+	 * each page, texts are stripped again when their table is built, so memory
+	 * doesn't grow with the number of pages. With a template there is no first
+	 * pass, the first table is built as soon as its page is stripped.
+	 *
+	 * Budgets apply to both passes, see extractWithStatus(): pages over their own
+	 * budget are skipped. When the document budget is exceeded or the extraction
+	 * is cancelled, ExtractionStoppedException is thrown by this method or by the
+	 * stream.
+	 *
+	 * The stream should be closed if it is not fully consumed
+	 *
+	 * @return
+	 */
+	public Stream<Table> extractStream() {
+		return this.extractStream(null);
+	}
+
+	/**
+	 * @param writer nullable, see buildTable()
+	 * @return
+	 */
+	private Stream<Table> extractStream(final TableWriter writer) {
+		long startTime = this.listener != null ? System.nanoTime() : 0;
+		DocumentExtractionEvent event = new DocumentExtractionEvent();
+		event.begin();
+		this.budget = this.createBudget();
 		try {
-			this.document = this.password != null ? PDDocument.load(this.inputStream, this.password)
-					: PDDocument.load(this.inputStream);
-			for (int pageId = 0; pageId < this.document.getNumberOfPages(); pageId++) {
-				boolean b = !this.exceptedPages.contains(pageId)
-						&& (this.extractedPages.isEmpty() || this.extractedPages.contains(pageId));
-				if (b) {
-					List<TextPosition> texts = this.extractTextPositions(pageId);// sorted by .getY() ASC
-					// extract line ranges
-					List<Range<Integer>> lineRanges = this.getLineRanges(pageId, texts);
-					// extract column ranges
-					List<TextPosition> textsByLineRanges = this.getTextsByLineRanges(lineRanges, texts);
-
-					pageIdNLineRangesMap.putAll(pageId, lineRanges);
-					pageIdNTextsMap.putAll(pageId, textsByLineRanges);
+			this.document = this.loadDocument(null);
+			GlyphCapture extractor = this.createGlyphCapture(this.document);
+			if (this.template != null) {
+				TableIterator tableIterator = new TableIterator(extractor, this.getExtractedPageIds(),
+						this.template.getColumnRanges(), startTime, event, writer);
+				return StreamSupport
+						.stream(Spliterators.spliteratorUnknownSize(tableIterator,
+								Spliterator.ORDERED | Spliterator.NONNULL), false)
+						.onClose(this::closeDocument);
+			}
+			List<Integer> pageIds = new ArrayList<>();
+			TrapRangeBuilder columnTrapRangeBuilder = new TrapRangeBuilder();
+			// pages are reported once, when their table is built. The column pass is
+			// reported as a whole by columnRangesBuilt()
+			long columnRangesStartTime = this.listener != null ? System.nanoTime() : 0;
+			this.extractPages(extractor, this.getExtractedPageIds(), pageContent -> {
+				if (pageContent.glyphs.size() > 0) {
+					TrapRangeEvent columnRangesEvent = new TrapRangeEvent();
+					columnRangesEvent.begin();
+					pageIds.add(pageContent.pageId);
+					// trap-ranges of a page are joined into the global ones
+					TrapRangeBuilder pageColumnTrapRangeBuilder = new TrapRangeBuilder();
+					this.addColumnRanges(pageColumnTrapRangeBuilder, pageContent.glyphs);
+					List<Range<Integer>> pageColumnRanges = pageColumnTrapRangeBuilder.build();
+					for (Range<Integer> columnRange : pageColumnRanges) {
+						columnTrapRangeBuilder.addRange(columnRange);
+					}
+					this.commitTrapRangeEvent(columnRangesEvent, "column", pageContent.pageId,
+							pageContent.glyphs.size(), pageColumnRanges.size());
+				}
+			}, false);
+			if (this.budget != null) {
+				try {
+					this.budget.checkStopped();
+				} catch (ExtractionStoppedException ex) {
+					this.closeDocument();
+					throw ex;
 				}
 			}
-			// Calculate columnRanges
-			List<Range<Integer>> columnRanges = this.getColumnRanges(pageIdNTextsMap.values());
-			for (int pageId : pageIdNTextsMap.keySet()) {
-				Table table = this.buildTable(pageId, (List<TextPosition>) pageIdNTextsMap.get(pageId),
-						(List<Range<Integer>>) pageIdNLineRangesMap.get(pageId), columnRanges);
-				retVal.add(table);
-				// debug
-				this.logger.debug("Found " + table.getRows().size() + " row(s) and " + columnRanges.size()
-						+ " column(s) of a table in page " + pageId);
+			TrapRangeEvent columnRangesEvent = new TrapRangeEvent();
+			columnRangesEvent.begin();
+			List<Range<Integer>> columnRanges = columnTrapRangeBuilder.build();
+			this.commitTrapRangeEvent(columnRangesEvent, "column", -1, 0, columnRanges.size());
+			if (this.listener != null) {
+				this.listener.columnRangesBuilt(System.nanoTime() - columnRangesStartTime, columnRanges.size());
 			}
+			TableIterator tableIterator = new TableIterator(extractor, pageIds, columnRanges, startTime, event,
+					writer);
+			return StreamSupport
+					.stream(Spliterators.spliteratorUnknownSize(tableIterator,
+							Spliterator.ORDERED | Spliterator.NONNULL), false)
+					.onClose(this::closeDocument);
+		} catch (IOException ex) {
+			this.closeDocument();
+			throw new RuntimeException("Parse pdf file fail", ex);
+		}
+	}
+
+	/**
+	 * Infer column trap-ranges of the extracted pages and keep them with the line
+	 * filters of this extractor (see exceptLine()) as a template. Extractions of
+	 * documents with the same layout can reuse it, see setTemplate()
+	 *
+	 * @param name
+	 * @return
+	 */
+	public LayoutTemplate extractTemplate(final String name) {
+		try {
+			this.document = this.loadDocument(null);
+			List<PageContent> pageContents = this.extractPages(this.createGlyphCapture(this.document),
+					this.getExtractedPageIds());
+			return new LayoutTemplate(name, this.getColumnRanges(pageContents), this.pageNExceptedLinesMap);
 		} catch (IOException ex) {
 			throw new RuntimeException("Parse pdf file fail", ex);
 		} finally {
-			if (this.document != null) {
+			this.closeDocument();
+		}
+	}
+
+	/**
+	 * Extract all tables, within the budget set by setTimeout(), setPageTimeout(),
+	 * setMaxGlyphs(), setMaxPageGlyphs() and setCancellationToken(). Pages over
+	 * their own budget are skipped. When the document budget is exceeded or the
+	 * extraction is cancelled, tables built so far are returned. Only completed
+	 * extractions are cached
+	 *
+	 * @return
+	 */
+	public ExtractionResult extractWithStatus() {
+		long startTime = this.listener != null ? System.nanoTime() : 0;
+		DocumentExtractionEvent event = new DocumentExtractionEvent();
+		event.begin();
+		List<Table> tables = new ArrayList<>();
+		ExtractionBudget budget = this.createBudget();
+		this.budget = budget;
+		try {
+			byte[] content = null;
+			if ((this.isParallel() || this.cache != null) && this.path == null) {
+				// each worker parses its own copy of the document, PDDocument is not thread-safe.
+				// The cache key is computed from the content too
+				content = this.inputStream.readAllBytes();
+			}
+			String cacheKey = null;
+			if (this.cache != null) {
+				try (InputStream cacheKeyContent = content != null ? new ByteArrayInputStream(content)
+						: Files.newInputStream(this.path)) {
+					cacheKey = this.cache.getKey(cacheKeyContent, this.getCacheOptions());
+				}
+				List<Table> cachedTables = this.cache.get(cacheKey);
+				if (cachedTables != null) {
+					this.documentExtracted(startTime, event, true, cachedTables.size());
+					return new ExtractionResult(cachedTables, ExtractionResult.Status.COMPLETED,
+							Collections.emptyList());
+				}
+			}
+			this.document = this.loadDocument(content);
+			List<Integer> pageIds = this.getExtractedPageIds();
+			if (this.template != null && !(this.isParallel() && pageIds.size() > 1)) {
+				// no column inference: each page is built as soon as it is stripped
+				this.extractPages(this.createGlyphCapture(this.document), pageIds,
+						pageContent -> this.addTable(tables, pageContent, this.template.getColumnRanges()), true);
+			} else {
+				List<PageContent> pageContents = this.isParallel() && pageIds.size() > 1
+						? this.extractPagesInParallel(content, pageIds)
+						: this.extractPages(this.createGlyphCapture(this.document), pageIds);
+				List<Range<Integer>> columnRanges = this.template != null ? this.template.getColumnRanges()
+						: this.getColumnRanges(pageContents);
 				try {
-					this.document.close();
-				} catch (IOException ex) {
-					this.logger.error(null, ex);
+					for (PageContent pageContent : pageContents) {
+						this.addTable(tables, pageContent, columnRanges);
+					}
+				} catch (ExtractionBudget.ExceededException ex) {
+					// extraction stopped, recorded by the budget
 				}
 			}
+			if (cacheKey != null && (budget == null || budget.getStatus() == ExtractionResult.Status.COMPLETED)) {
+				this.cache.put(cacheKey, tables);
+			}
+		} catch (IOException ex) {
+			throw new RuntimeException("Parse pdf file fail", ex);
+		} finally {
+			this.closeDocument();
 		}
+		this.documentExtracted(startTime, event, false, tables.size());
+		ExtractionResult retVal = budget != null
+				? new ExtractionResult(tables, budget.getStatus(), budget.getSkippedPageIdxes())
+				: new ExtractionResult(tables, ExtractionResult.Status.COMPLETED, Collections.emptyList());
 		// return
 		return retVal;
 	}
 
-	private List<TextPosition> extractTextPositions(final int pageId) throws IOException {
-		TextPositionExtractor extractor = new TextPositionExtractor(this.document, pageId);
-		return extractor.extract();
+	/**
+	 * Options changing the extracted tables, part of the cache key
+	 *
+	 * @return
+	 */
+	private String getCacheOptions() {
+		List<String> exceptedLines = new ArrayList<>();
+		for (Map.Entry<Integer, Integer> entry : this.pageNExceptedLinesMap.entries()) {
+			exceptedLines.add(entry.getValue() + "@" + entry.getKey());
+		}
+		Collections.sort(exceptedLines);
+		return "pages=" + new TreeSet<>(this.extractedPages) + ";exceptedPages=" + new TreeSet<>(this.exceptedPages)
+				+ ";exceptedLines=" + exceptedLines + ";glyphOnlyCapture=" + this.glyphOnlyCapture + ";columnRanges="
+				+ (this.template != null ? this.template.getColumnRanges() : null) + ";regions="
+				+ new TreeMap<>(this.regions);
+	}
+
+	private List<Range<Integer>> getColumnRanges(final List<PageContent> pageContents) {
+		long startTime = this.listener != null ? System.nanoTime() : 0;
+		TrapRangeEvent event = new TrapRangeEvent();
+		event.begin();
+		TrapRangeBuilder columnTrapRangeBuilder = new TrapRangeBuilder();
+		int glyphsCount = 0;
+		for (PageContent pageContent : pageContents) {
+			this.addColumnRanges(columnTrapRangeBuilder, pageContent.glyphs);
+			glyphsCount += pageContent.glyphs.size();
+		}
+		List<Range<Integer>> retVal = columnTrapRangeBuilder.build();
+		this.commitTrapRangeEvent(event, "column", -1, glyphsCount, retVal.size());
+		if (this.listener != null) {
+			this.listener.columnRangesBuilt(System.nanoTime() - startTime, retVal.size());
+		}
+		return retVal;
 	}
 
 	/**
-	 * @param texts
-	 * @return
+	 * @return id set by setDocumentId(), or path of the source file
 	 */
-	private List<Range<Integer>> getColumnRanges(final Collection<TextPosition> texts) {
-		TrapRangeBuilder rangesBuilder = new TrapRangeBuilder();
-		for (TextPosition text : texts) {
-			Range<Integer> range = Range.closed((int) text.getX(), (int) (text.getX() + text.getWidth()));
-			rangesBuilder.addRange(range);
+	private String getDocumentId() {
+		if (this.documentId != null) {
+			return this.documentId;
 		}
-		return rangesBuilder.build();
+		return this.path != null ? this.path.toString() : null;
 	}
 
-	private List<Range<Integer>> getLineRanges(final int pageId, final List<TextPosition> pageContent) {
-		TrapRangeBuilder lineTrapRangeBuilder = new TrapRangeBuilder();
-		for (TextPosition textPosition : pageContent) {
-			Range<Integer> lineRange = Range.closed((int) textPosition.getY(),
-					(int) (textPosition.getY() + textPosition.getHeight()));
-			// add to builder
-			lineTrapRangeBuilder.addRange(lineRange);
+	private List<Integer> getExtractedPageIds() {
+		List<Integer> retVal = new ArrayList<>();
+		for (int pageId = 0; pageId < this.document.getNumberOfPages(); pageId++) {
+			boolean b = !this.exceptedPages.contains(pageId)
+					&& (this.extractedPages.isEmpty() || this.extractedPages.contains(pageId));
+			if (b) {
+				retVal.add(pageId);
+			}
 		}
-		List<Range<Integer>> lineTrapRanges = lineTrapRangeBuilder.build();
-		List<Range<Integer>> retVal = this.removeExceptedLines(pageId, lineTrapRanges);
 		return retVal;
 	}
 
 	/**
 	 *
-	 * Remove all texts in excepted lines
+	 * Remove all glyphs in excepted lines, in place
 	 *
-	 * TexPositions are sorted by .getY() ASC
+	 * Glyphs are sorted by y ASC
 	 *
 	 * @param lineRanges
-	 * @param textPositions
+	 * @param glyphs
 	 * @return
 	 */
-	private List<TextPosition> getTextsByLineRanges(final List<Range<Integer>> lineRanges,
-			final List<TextPosition> textPositions) {
-		List<TextPosition> retVal = new ArrayList<>();
+	private GlyphBuffer getGlyphsByLineRanges(final List<Range<Integer>> lineRanges, final GlyphBuffer glyphs) {
+		int retValSize = 0;
 		int idx = 0;
 		int lineIdx = 0;
-		while (idx < textPositions.size() && lineIdx < lineRanges.size()) {
-			TextPosition textPosition = textPositions.get(idx);
-			Range<Integer> textRange = Range.closed((int) textPosition.getY(),
-					(int) (textPosition.getY() + textPosition.getHeight()));
+		while (idx < glyphs.size() && lineIdx < lineRanges.size()) {
+			int lowerEndpoint = (int) glyphs.getY(idx);
+			int upperEndpoint = (int) (glyphs.getY(idx) + glyphs.getHeight(idx));
 			Range<Integer> lineRange = lineRanges.get(lineIdx);
-			if (lineRange.encloses(textRange)) {
-				retVal.add(textPosition);
+			if (lineRange.lowerEndpoint() <= lowerEndpoint && upperEndpoint <= lineRange.upperEndpoint()) {
+				glyphs.move(idx, retValSize++);
 				idx++;
-			} else if (lineRange.upperEndpoint() < textRange.lowerEndpoint()) {
+			} else if (lineRange.upperEndpoint() < lowerEndpoint) {
 				lineIdx++;
 			} else {
 				idx++;
 			}
 		}
+		glyphs.truncate(retValSize);
 		// return
+		return glyphs;
+	}
+
+	/**
+	 * Glyphs are sorted by y ASC
+	 *
+	 * @param pageId
+	 * @param glyphs
+	 * @param reported false to skip listener calls and flight recorder events
+	 * @return
+	 */
+	private PageContent getPageContent(final int pageId, final GlyphBuffer glyphs, final boolean reported) {
+		long startTime = reported && this.listener != null ? System.nanoTime() : 0;
+		TrapRangeEvent event = new TrapRangeEvent();
+		event.begin();
+		int glyphsCount = glyphs.size();
+		// extract line ranges
+		List<Range<Integer>> lineRanges = this.getLineRanges(pageId, glyphs);
+		// extract column ranges
+		GlyphBuffer glyphsByLineRanges = this.getGlyphsByLineRanges(lineRanges, glyphs);
+		if (reported) {
+			this.commitTrapRangeEvent(event, "line", pageId, glyphsCount, lineRanges.size());
+			if (this.listener != null) {
+				this.listener.lineRangesBuilt(pageId, System.nanoTime() - startTime, lineRanges.size());
+			}
+		}
+		return new PageContent(pageId, lineRanges, glyphsByLineRanges);
+	}
+
+	private List<Range<Integer>> getLineRanges(final int pageId, final GlyphBuffer glyphs) {
+		TrapRangeBuilder lineTrapRangeBuilder = new TrapRangeBuilder();
+		for (int idx = 0; idx < glyphs.size(); idx++) {
+			lineTrapRangeBuilder.addRange((int) glyphs.getY(idx), (int) (glyphs.getY(idx) + glyphs.getHeight(idx)));
+		}
+		List<Range<Integer>> lineTrapRanges = lineTrapRangeBuilder.build();
+		List<Range<Integer>> retVal = this.removeExceptedLines(pageId, lineTrapRanges);
 		return retVal;
 	}
 
@@ -376,6 +1087,50 @@ public class PDFTableExtractor {
 		return retVal;
 	}
 
+	private boolean isParallel() {
+		return this.parallelism > 1 || this.executor != null;
+	}
+
+	/**
+	 * File sources are read through random access, other sources are buffered
+	 * according to memoryUsageSetting
+	 *
+	 * @param content in-memory copy of the source, null to read the source itself
+	 * @return
+	 * @throws IOException
+	 */
+	private PDDocument loadDocument(final byte[] content) throws IOException {
+		return this.loadDocument(content, true);
+	}
+
+	/**
+	 * @param content  in-memory copy of the source, null to read the source itself
+	 * @param reported false for the copies loaded by parallel workers
+	 * @return
+	 * @throws IOException
+	 */
+	private PDDocument loadDocument(final byte[] content, final boolean reported) throws IOException {
+		long startTime = this.listener != null ? System.nanoTime() : 0;
+		String password = this.password != null ? this.password : "";
+		PDDocument retVal;
+		long bytesCount;
+		if (content != null) {
+			retVal = PDDocument.load(content, password, null, null, this.memoryUsageSetting);
+			bytesCount = content.length;
+		} else if (this.path != null) {
+			retVal = PDDocument.load(this.path.toFile(), password, this.memoryUsageSetting);
+			bytesCount = this.listener != null ? Files.size(this.path) : 0;
+		} else {
+			CountingInputStream countingInputStream = new CountingInputStream(this.inputStream);
+			retVal = PDDocument.load(countingInputStream, password, this.memoryUsageSetting);
+			bytesCount = countingInputStream.getCount();
+		}
+		if (this.listener != null && reported) {
+			this.listener.documentLoaded(System.nanoTime() - startTime, bytesCount, retVal.getNumberOfPages());
+		}
+		return retVal;
+	}
+
 	private List<Range<Integer>> removeExceptedLines(final int pageIdx, final List<Range<Integer>> lineTrapRanges) {
 		List<Range<Integer>> retVal = new ArrayList<>();
 		for (int lineIdx = 0; lineIdx < lineTrapRanges.size(); lineIdx++) {
@@ -389,29 +1144,212 @@ public class PDFTableExtractor {
 		return retVal;
 	}
 
-	public PDFTableExtractor setSource(final File file) {
-		try {
-			return this.setSource(new FileInputStream(file));
-		} catch (FileNotFoundException ex) {
-			throw new RuntimeException("Invalid pdf file", ex);
+	/**
+	 * Tables returned by extract() are read from and written to this cache.
+	 * extractStream() doesn't use it
+	 *
+	 * @param cache
+	 * @return
+	 */
+	public PDFTableExtractor setCache(final ExtractionCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Checked while pages are stripped and tables are built, see
+	 * extractWithStatus() and extractStream()
+	 *
+	 * @param cancellationToken
+	 * @return
+	 */
+	public PDFTableExtractor setCancellationToken(final CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+
+	/**
+	 * Identifies the source in flight recorder events, default is the path of the
+	 * source file. Useful for input stream sources
+	 *
+	 * @param documentId
+	 * @return
+	 */
+	public PDFTableExtractor setDocumentId(final String documentId) {
+		this.documentId = documentId;
+		return this;
+	}
+
+	/**
+	 * Strip pages on the given executor. The executor is not shut down by the
+	 * extractor. Number of page chunks is the parallelism level, or the number of
+	 * available processors if no parallelism level was set
+	 *
+	 * @param executor
+	 * @return
+	 */
+	public PDFTableExtractor setExecutor(final ExecutorService executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Capture glyphs directly from the content stream engine instead of
+	 * PDFTextStripper. Faster, but texts are not post-processed by the stripper:
+	 * duplicated overlapping glyphs (fake bold) are kept and diacritics are not
+	 * merged
+	 *
+	 * @param glyphOnlyCapture
+	 * @return
+	 */
+	public PDFTableExtractor setGlyphOnlyCapture(final boolean glyphOnlyCapture) {
+		this.glyphOnlyCapture = glyphOnlyCapture;
+		return this;
+	}
+
+	/**
+	 * Receives timings and counters of each extraction phase. Without listener
+	 * nothing is measured
+	 *
+	 * @param listener
+	 * @return
+	 */
+	public PDFTableExtractor setListener(final ExtractionListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Extraction stops when more glyphs have been stripped from the document, see
+	 * extractWithStatus(). 0 (default) is unlimited
+	 *
+	 * @param maxGlyphs
+	 * @return
+	 */
+	public PDFTableExtractor setMaxGlyphs(final long maxGlyphs) {
+		this.maxGlyphs = maxGlyphs;
+		return this;
+	}
+
+	/**
+	 * Pages with more glyphs are skipped, see extractWithStatus(). 0 (default) is
+	 * unlimited
+	 *
+	 * @param maxPageGlyphs
+	 * @return
+	 */
+	public PDFTableExtractor setMaxPageGlyphs(final int maxPageGlyphs) {
+		this.maxPageGlyphs = maxPageGlyphs;
+		return this;
+	}
+
+	/**
+	 * Where PDFBox buffers the parsed document: main memory (default), a temp file,
+	 * or main memory up to a limit then a temp file. Ex:
+	 * MemoryUsageSetting.setupMixed(64 * 1024 * 1024)
+	 *
+	 * @param memoryUsageSetting
+	 * @return
+	 */
+	public PDFTableExtractor setMemoryUsageSetting(final MemoryUsageSetting memoryUsageSetting) {
+		this.memoryUsageSetting = memoryUsageSetting;
+		return this;
+	}
+
+	/**
+	 * Pages taking longer to strip are skipped, see extractWithStatus(). The
+	 * timeout is checked as glyphs are captured and when the page ends: a page
+	 * of vector graphics or images without text isn't interrupted, it is skipped
+	 * once stripped
+	 *
+	 * @param pageTimeout null (default) is unlimited
+	 * @return
+	 */
+	public PDFTableExtractor setPageTimeout(final Duration pageTimeout) {
+		this.pageTimeout = pageTimeout;
+		return this;
+	}
+
+	/**
+	 * Number of pages stripped at the same time, default is 1 (sequential). Each
+	 * worker parses its own copy of the document
+	 *
+	 * @param parallelism
+	 * @return
+	 */
+	public PDFTableExtractor setParallelism(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
 		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Only glyphs inside the region are extracted, in all pages without their own
+	 * region. Glyphs outside never reach line and column inference. See
+	 * setRegion(int, Rectangle2D)
+	 *
+	 * @param region
+	 * @return
+	 */
+	public PDFTableExtractor setRegion(final Rectangle2D region) {
+		return this.setRegion(-1, region);
+	}
+
+	/**
+	 * Only glyphs inside the region are extracted from this page. Coordinates are
+	 * the ones of TextPosition, in points from the top left corner of the page, y
+	 * downward. A glyph is inside if its position (x, y) is, like in
+	 * PDFTextStripperByArea
+	 *
+	 * @param pageIdx
+	 * @param region
+	 * @return
+	 */
+	public PDFTableExtractor setRegion(final int pageIdx, final Rectangle2D region) {
+		this.regions.put(pageIdx, region);
+		return this;
+	}
+
+	public PDFTableExtractor setSource(final File file) {
+		return this.setSource(file.toPath());
 	}
 
 	public PDFTableExtractor setSource(final File file, final String password) {
-		try {
-			return this.setSource(new FileInputStream(file), password);
-		} catch (FileNotFoundException ex) {
-			throw new RuntimeException("Invalid pdf file", ex);
-		}
+		return this.setSource(file.toPath(), password);
 	}
 
 	public PDFTableExtractor setSource(final InputStream inputStream) {
 		this.inputStream = inputStream;
+		this.path = null;
 		return this;
 	}
 
 	public PDFTableExtractor setSource(final InputStream inputStream, final String password) {
-		this.inputStream = inputStream;
+		this.setSource(inputStream);
+		this.password = password;
+		return this;
+	}
+
+	/**
+	 * The file is parsed through random access instead of being copied into
+	 * memory, see setMemoryUsageSetting()
+	 *
+	 * @param path
+	 * @return
+	 */
+	public PDFTableExtractor setSource(final Path path) {
+		if (!Files.isRegularFile(path)) {
+			throw new RuntimeException("Invalid pdf file", new FileNotFoundException(path.toString()));
+		}
+		this.path = path;
+		this.inputStream = null;
+		return this;
+	}
+
+	public PDFTableExtractor setSource(final Path path, final String password) {
+		this.setSource(path);
 		this.password = password;
 		return this;
 	}
@@ -423,4 +1361,39 @@ public class PDFTableExtractor {
 	public PDFTableExtractor setSource(final String filePath, final String password) {
 		return this.setSource(new File(filePath), password);
 	}
+
+	/**
+	 * Column trap-ranges of the template are used instead of being inferred from
+	 * all pages, its line filters are added to the ones of this extractor
+	 *
+	 * @param template
+	 * @return
+	 */
+	public PDFTableExtractor setTemplate(final LayoutTemplate template) {
+		this.template = template;
+		this.pageNExceptedLinesMap.putAll(template.getExceptedLines());
+		return this;
+	}
+
+	/**
+	 * Extraction stops when it takes longer, document loading included, see
+	 * extractWithStatus()
+	 *
+	 * @param timeout null (default) is unlimited
+	 * @return
+	 */
+	public PDFTableExtractor setTimeout(final Duration timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Immutable copy of the options of this extractor, to share between threads.
+	 * The source and the document id are not copied
+	 *
+	 * @return
+	 */
+	public ExtractionEngine toEngine() {
+		return new ExtractionEngine(new PDFTableExtractor(this));
+	}
 }
@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of stripping the glyphs of one page
+ */
+@Name("com.giaybac.traprange.PageCapture")
+@Label("Page Capture")
+@Category("TrapRange")
+class PageCaptureEvent extends Event {
+	@Label("Document")
+	String document;
+
+	@Label("Glyphs")
+	int glyphsCount;
+
+	@Label("Page Index")
+	int pageIdx;
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.Iterator;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * Pages of a document requested by ascending page ids, in one traversal of the
+ * page tree. PDDocument.getPage() and PDFTextStripper.writeText() walk the tree
+ * from its root on each call
+ */
+class PageCursor {
+	private final Iterator<PDPage> pageIterator;
+	// id of the last returned page
+	private int pageId = -1;
+
+	PageCursor(final PDDocument document) {
+		this.pageIterator = document.getPages().iterator();
+	}
+
+	/**
+	 * @param pageId greater than the one of the previous call
+	 * @return
+	 */
+	PDPage get(final int pageId) {
+		if (pageId <= this.pageId) {
+			throw new IllegalArgumentException("Page " + pageId + " is before the cursor: " + this.pageId);
+		}
+		PDPage retVal = null;
+		while (this.pageId < pageId) {
+			retVal = this.pageIterator.next();
+			this.pageId++;
+		}
+		return retVal;
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of building the table of one page
+ */
+@Name("com.giaybac.traprange.TableAssembly")
+@Label("Table Assembly")
+@Category("TrapRange")
+class TableAssemblyEvent extends Event {
+	@Label("Columns")
+	int columnsCount;
+
+	@Label("Document")
+	String document;
+
+	@Label("Glyphs")
+	int glyphsCount;
+
+	@Label("Page Index")
+	int pageIdx;
+
+	@Label("Rows")
+	int rowsCount;
+}
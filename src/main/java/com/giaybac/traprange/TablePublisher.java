@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Tables of a stream published on demand: the next table is built on the
+ * executor only when the subscriber has requested it, one table at a time. The
+ * stream is opened by the first request and closed on completion, error or
+ * cancellation. A source is extracted once, only one subscriber is accepted
+ */
+class TablePublisher implements Flow.Publisher<Table> {
+
+	private class TableSubscription implements Flow.Subscription {
+		private volatile boolean cancelled;
+		// requested tables not delivered yet, plus wake-ups by cancel() and errors. While
+		// it's positive a drain() is scheduled or running, it is the only one touching
+		// the stream and the subscriber
+		private final AtomicLong demand = new AtomicLong();
+		// signaled by drain(), subscribers are never called concurrently
+		private volatile RuntimeException error;
+		private Stream<Table> stream;
+		private final Flow.Subscriber<? super Table> subscriber;
+		private Iterator<Table> tableIterator;
+
+		private TableSubscription(final Flow.Subscriber<? super Table> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void cancel() {
+			this.cancelled = true;
+			// wakes drain() up to close the stream
+			this.signal(1);
+		}
+
+		private void closeStream() {
+			if (this.stream != null) {
+				this.stream.close();
+				this.stream = null;
+			}
+		}
+
+		private void drain() {
+			while (!this.cancelled) {
+				Table table;
+				try {
+					if (this.error != null) {
+						throw this.error;
+					}
+					if (this.tableIterator == null) {
+						this.stream = TablePublisher.this.streamSupplier.get();
+						this.tableIterator = this.stream.iterator();
+					}
+					table = this.tableIterator.hasNext() ? this.tableIterator.next() : null;
+				} catch (RuntimeException ex) {
+					boolean cancelled = this.cancelled;
+					this.cancelled = true;
+					this.closeStream();
+					if (!cancelled) {
+						this.signalSubscriber(() -> this.subscriber.onError(ex));
+					}
+					return;
+				}
+				if (table == null) {
+					this.cancelled = true;
+					this.closeStream();
+					this.signalSubscriber(this.subscriber::onComplete);
+					return;
+				}
+				if (!this.signalSubscriber(() -> this.subscriber.onNext(table))
+						|| this.demand.decrementAndGet() == 0) {
+					return;
+				}
+			}
+			this.closeStream();
+		}
+
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				this.error = new IllegalArgumentException("Invalid number of requested tables: " + n);
+				this.signal(1);
+			} else {
+				this.signal(n);
+			}
+		}
+
+		private void signal(final long n) {
+			long previousDemand = this.demand.getAndUpdate(demand -> demand + n < 0 ? Long.MAX_VALUE : demand + n);
+			if (previousDemand == 0) {
+				TablePublisher.this.executor.execute(this::drain);
+			}
+		}
+
+		/**
+		 * A subscriber throwing is cancelled, it isn't signaled its own error (rule
+		 * 2.13)
+		 *
+		 * @param signal call of the subscriber
+		 * @return false if the subscriber has thrown
+		 */
+		private boolean signalSubscriber(final Runnable signal) {
+			try {
+				signal.run();
+				return true;
+			} catch (RuntimeException ex) {
+				this.cancelled = true;
+				this.closeStream();
+				TablePublisher.this.logger.warn("Subscriber failed, tables are no longer published", ex);
+				return false;
+			}
+		}
+	}
+
+	private final Executor executor;
+	private final Logger logger = LoggerFactory.getLogger(TablePublisher.class);
+	private final Supplier<Stream<Table>> streamSupplier;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * @param streamSupplier called on the executor by the first request
+	 * @param executor
+	 */
+	TablePublisher(final Supplier<Stream<Table>> streamSupplier, final Executor executor) {
+		this.streamSupplier = streamSupplier;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super Table> subscriber) {
+		if (!this.subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void cancel() {
+				}
+
+				@Override
+				public void request(final long n) {
+				}
+			});
+			subscriber.onError(new IllegalStateException("Tables are already published to a subscriber"));
+			return;
+		}
+		subscriber.onSubscribe(new TableSubscription(subscriber));
+	}
+}
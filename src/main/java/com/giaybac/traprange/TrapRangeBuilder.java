@@ -6,8 +6,7 @@
 package com.giaybac.traprange;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -16,49 +15,96 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.Range;
 
 /**
+ * Ranges are stored as primitive longs: lower endpoint in the high 32 bits,
+ * upper endpoint in the low 32 bits. Sorting these longs orders ranges by
+ * lowerEndpoint ASC and joining is done in place, so adding and building don't
+ * allocate per range
  *
  * @author Tho Mar 19, 2015 10:43:22 PM
  */
 public class TrapRangeBuilder {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static long pack(final int lowerEndpoint, final int upperEndpoint) {
+		return ((long) lowerEndpoint << 32) | (upperEndpoint & 0xFFFFFFFFL);
+	}
+
+	private static int lowerEndpoint(final long range) {
+		return (int) (range >> 32);
+	}
+
+	private static int upperEndpoint(final long range) {
+		return (int) range;
+	}
+
 	private final Logger logger = LoggerFactory.getLogger(TrapRangeBuilder.class);
-	private final List<Range<Integer>> ranges = new ArrayList<>();
+	private long[] ranges = new long[TrapRangeBuilder.INITIAL_CAPACITY];
+	private int size;
 
-	public TrapRangeBuilder addRange(final Range<Integer> range) {
-		this.ranges.add(range);
+	/**
+	 * Add closed range [lowerEndpoint, upperEndpoint]
+	 *
+	 * @param lowerEndpoint
+	 * @param upperEndpoint
+	 * @return
+	 */
+	public TrapRangeBuilder addRange(final int lowerEndpoint, final int upperEndpoint) {
+		if (lowerEndpoint > upperEndpoint) {
+			throw new IllegalArgumentException("Invalid range: [" + lowerEndpoint + ", " + upperEndpoint + "]");
+		}
+		if (this.size == this.ranges.length) {
+			this.ranges = Arrays.copyOf(this.ranges, this.size * 2);
+		}
+		this.ranges[this.size++] = TrapRangeBuilder.pack(lowerEndpoint, upperEndpoint);
 		return this;
 	}
 
+	public TrapRangeBuilder addRange(final Range<Integer> range) {
+		return this.addRange(range.lowerEndpoint(), range.upperEndpoint());
+	}
+
 	/**
 	 * The result will be ordered by lowerEndpoint ASC
 	 *
 	 * @return
 	 */
 	public List<Range<Integer>> build() {
-		List<Range<Integer>> retVal = new ArrayList<>();
-		// order range by lower Bound
-		Collections.sort(this.ranges, new Comparator<Range<Integer>>() {
-			@Override
-			public int compare(final Range<Integer> o1, final Range<Integer> o2) {
-				return o1.lowerEndpoint().compareTo(o2.lowerEndpoint());
-			}
-		});
-
-		for (Range<Integer> range : this.ranges) {
-			if (retVal.isEmpty()) {
-				retVal.add(range);
-			} else {
-				Range<Integer> lastRange = retVal.get(retVal.size() - 1);
-				if (lastRange.isConnected(range)) {
-					Range<Integer> newLastRange = lastRange.span(range);
-					retVal.set(retVal.size() - 1, newLastRange);
-				} else {
-					retVal.add(range);
-				}
-			}
+		int trapRangesCount = this.join();
+		List<Range<Integer>> retVal = new ArrayList<>(trapRangesCount);
+		for (int idx = 0; idx < trapRangesCount; idx++) {
+			long range = this.ranges[idx];
+			retVal.add(Range.closed(TrapRangeBuilder.lowerEndpoint(range), TrapRangeBuilder.upperEndpoint(range)));
 		}
 		// debug
 		this.logger.debug("Found " + retVal.size() + " trap-range(s)");
 		// return
 		return retVal;
 	}
+
+	/**
+	 * Order ranges by lowerEndpoint ASC then join connected ranges in place. After
+	 * this call the first N stored ranges are the trap-ranges, N is returned
+	 *
+	 * @return
+	 */
+	private int join() {
+		Arrays.sort(this.ranges, 0, this.size);
+		int retVal = 0;
+		for (int idx = 0; idx < this.size; idx++) {
+			long range = this.ranges[idx];
+			if (retVal > 0 && TrapRangeBuilder.lowerEndpoint(range) <= TrapRangeBuilder
+					.upperEndpoint(this.ranges[retVal - 1])) {
+				// connected: span both ranges
+				long lastRange = this.ranges[retVal - 1];
+				int upperEndpoint = Math.max(TrapRangeBuilder.upperEndpoint(lastRange),
+						TrapRangeBuilder.upperEndpoint(range));
+				this.ranges[retVal - 1] = TrapRangeBuilder.pack(TrapRangeBuilder.lowerEndpoint(lastRange),
+						upperEndpoint);
+			} else {
+				this.ranges[retVal++] = range;
+			}
+		}
+		this.size = retVal;
+		return retVal;
+	}
 }
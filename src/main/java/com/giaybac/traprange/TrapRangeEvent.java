@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of building line trap-ranges of a page or column
+ * trap-ranges of a document
+ */
+@Name("com.giaybac.traprange.TrapRange")
+@Label("Trap-Range Building")
+@Category("TrapRange")
+class TrapRangeEvent extends Event {
+	@Label("Document")
+	String document;
+
+	@Label("Glyphs")
+	int glyphsCount;
+
+	@Label("Kind")
+	@Description("line or column")
+	String kind;
+
+	@Label("Page Index")
+	@Description("-1 for column trap-ranges joined from all pages")
+	int pageIdx;
+
+	@Label("Trap-Ranges")
+	int rangesCount;
+}
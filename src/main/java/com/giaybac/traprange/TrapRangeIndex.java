@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange;
+
+import java.util.List;
+
+import com.google.common.collect.Range;
+
+/**
+ * Trap-ranges as sorted primitive endpoints. The range enclosing a glyph is
+ * found by binary search on lower endpoints, without allocation
+ */
+class TrapRangeIndex {
+	private final int[] lowerEndpoints;
+	private final int[] upperEndpoints;
+
+	/**
+	 * @param trapRanges ordered by lowerEndpoint ASC, not connected
+	 */
+	TrapRangeIndex(final List<Range<Integer>> trapRanges) {
+		this.lowerEndpoints = new int[trapRanges.size()];
+		this.upperEndpoints = new int[trapRanges.size()];
+		for (int idx = 0; idx < trapRanges.size(); idx++) {
+			this.lowerEndpoints[idx] = trapRanges.get(idx).lowerEndpoint();
+			this.upperEndpoints[idx] = trapRanges.get(idx).upperEndpoint();
+		}
+	}
+
+	/**
+	 * Ranges don't overlap: only the last range starting at or before
+	 * lowerEndpoint can enclose [lowerEndpoint, upperEndpoint]. It is searched from
+	 * fromIdx: glyphs ordered by lowerEndpoint ASC pass the last idx found, most
+	 * glyphs are in the same range or the next one
+	 *
+	 * @param lowerEndpoint
+	 * @param upperEndpoint
+	 * @param fromIdx       idx found for a lower lowerEndpoint, or 0
+	 * @return idx of the enclosing range, -1 if there's none
+	 */
+	int indexOf(final int lowerEndpoint, final int upperEndpoint, final int fromIdx) {
+		int retVal = fromIdx;
+		if (retVal + 1 < this.lowerEndpoints.length && this.lowerEndpoints[retVal + 1] <= lowerEndpoint) {
+			retVal++;
+			if (retVal + 1 < this.lowerEndpoints.length && this.lowerEndpoints[retVal + 1] <= lowerEndpoint) {
+				// binary search of the last range starting at or before lowerEndpoint
+				int low = retVal + 1;
+				int high = this.lowerEndpoints.length - 1;
+				while (low <= high) {
+					int middle = (low + high) >>> 1;
+					if (this.lowerEndpoints[middle] <= lowerEndpoint) {
+						low = middle + 1;
+					} else {
+						high = middle - 1;
+					}
+				}
+				retVal = high;
+			}
+		}
+		if (retVal < this.lowerEndpoints.length && this.lowerEndpoints[retVal] <= lowerEndpoint
+				&& upperEndpoint <= this.upperEndpoints[retVal]) {
+			return retVal;
+		}
+		return -1;
+	}
+}
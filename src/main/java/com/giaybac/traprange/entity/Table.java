@@ -23,6 +23,10 @@ public class Table {
         this.columnsCount = columnsCount;
     }
 
+    public int getColumnsCount() {
+        return columnsCount;
+    }
+
     public int getPageIdx() {
         return pageIdx;
     }
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.writer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.giaybac.traprange.entity.TableCell;
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * Keeps the current table and maps row cells to columns, missing cells are
+ * empty strings
+ */
+public abstract class AbstractTableWriter implements TableWriter {
+
+	private int columnsCount;
+	protected final Appendable out;
+	private int pageIdx;
+
+	protected AbstractTableWriter(final Appendable out) {
+		this.out = out;
+	}
+
+	@Override
+	public void begin() throws IOException {
+	}
+
+	@Override
+	public void beginTable(final int pageIdx, final int columnsCount) throws IOException {
+		this.pageIdx = pageIdx;
+		this.columnsCount = columnsCount;
+	}
+
+	@Override
+	public void end() throws IOException {
+	}
+
+	@Override
+	public void endTable() throws IOException {
+	}
+
+	/**
+	 * Content of each column of the current table in this row
+	 *
+	 * @param row
+	 * @return
+	 */
+	protected String[] getCellContents(final TableRow row) {
+		String[] retVal = new String[this.columnsCount];
+		Arrays.fill(retVal, "");
+		for (TableCell cell : row.getCells()) {
+			if (cell.getIdx() < this.columnsCount) {
+				retVal[cell.getIdx()] = cell.getContent();
+			}
+		}
+		return retVal;
+	}
+
+	protected int getPageIdx() {
+		return this.pageIdx;
+	}
+}
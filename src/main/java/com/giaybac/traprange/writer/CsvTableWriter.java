@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.writer;
+
+import java.io.IOException;
+
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * RFC 4180 CSV: comma separated fields, CRLF line endings, fields containing
+ * comma, double quote or line break are quoted. The first field of each record
+ * is the page number (1-based) so tables of all pages can share one file
+ */
+public class CsvTableWriter extends AbstractTableWriter {
+
+	public CsvTableWriter(final Appendable out) {
+		super(out);
+	}
+
+	private void appendField(final String content) throws IOException {
+		boolean quoted = false;
+		for (int idx = 0; idx < content.length() && !quoted; idx++) {
+			char c = content.charAt(idx);
+			quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quoted) {
+			this.out.append(content);
+			return;
+		}
+		this.out.append('"');
+		for (int idx = 0; idx < content.length(); idx++) {
+			char c = content.charAt(idx);
+			if (c == '"') {
+				this.out.append('"');
+			}
+			this.out.append(c);
+		}
+		this.out.append('"');
+	}
+
+	@Override
+	public void writeRow(final TableRow row) throws IOException {
+		this.out.append(String.valueOf(this.getPageIdx() + 1));
+		for (String content : this.getCellContents(row)) {
+			this.out.append(',');
+			this.appendField(content);
+		}
+		this.out.append("\r\n");
+	}
+}
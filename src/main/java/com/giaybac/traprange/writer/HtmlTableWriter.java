@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.writer;
+
+import java.io.IOException;
+
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * All tables in one html document, each table is preceded by its page number
+ */
+public class HtmlTableWriter extends AbstractTableWriter {
+
+	public HtmlTableWriter(final Appendable out) {
+		super(out);
+	}
+
+	private void appendEscaped(final String content) throws IOException {
+		for (int idx = 0; idx < content.length(); idx++) {
+			char c = content.charAt(idx);
+			switch (c) {
+			case '<':
+				this.out.append("&lt;");
+				break;
+			case '>':
+				this.out.append("&gt;");
+				break;
+			case '&':
+				this.out.append("&amp;");
+				break;
+			case '"':
+				this.out.append("&quot;");
+				break;
+			case '\'':
+				this.out.append("&#39;");
+				break;
+			default:
+				this.out.append(c);
+			}
+		}
+	}
+
+	@Override
+	public void begin() throws IOException {
+		this.out.append("<!DOCTYPE html><html><head><meta charset='utf-8'></head><body>\n");
+	}
+
+	@Override
+	public void beginTable(final int pageIdx, final int columnsCount) throws IOException {
+		super.beginTable(pageIdx, columnsCount);
+		this.out.append("<p>Page: ").append(String.valueOf(pageIdx + 1)).append("</p>\n<table border='1'>\n");
+	}
+
+	@Override
+	public void end() throws IOException {
+		this.out.append("</body></html>\n");
+	}
+
+	@Override
+	public void endTable() throws IOException {
+		this.out.append("</table>\n");
+	}
+
+	@Override
+	public void writeRow(final TableRow row) throws IOException {
+		this.out.append("<tr>");
+		for (String content : this.getCellContents(row)) {
+			this.out.append("<td>");
+			this.appendEscaped(content);
+			this.out.append("</td>");
+		}
+		this.out.append("</tr>\n");
+	}
+}
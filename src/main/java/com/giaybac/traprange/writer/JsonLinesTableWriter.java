@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.writer;
+
+import java.io.IOException;
+
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * JSON Lines: one object per row. Ex: {"page":1,"row":0,"cells":["a","","b"]}
+ */
+public class JsonLinesTableWriter extends AbstractTableWriter {
+
+	public JsonLinesTableWriter(final Appendable out) {
+		super(out);
+	}
+
+	private void appendString(final String content) throws IOException {
+		this.out.append('"');
+		for (int idx = 0; idx < content.length(); idx++) {
+			char c = content.charAt(idx);
+			switch (c) {
+			case '"':
+				this.out.append("\\\"");
+				break;
+			case '\\':
+				this.out.append("\\\\");
+				break;
+			case '\n':
+				this.out.append("\\n");
+				break;
+			case '\r':
+				this.out.append("\\r");
+				break;
+			case '\t':
+				this.out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					this.out.append(String.format("\\u%04x", (int) c));
+				} else {
+					this.out.append(c);
+				}
+			}
+		}
+		this.out.append('"');
+	}
+
+	@Override
+	public void writeRow(final TableRow row) throws IOException {
+		this.out.append("{\"page\":").append(String.valueOf(this.getPageIdx() + 1)).append(",\"row\":")
+				.append(String.valueOf(row.getIdx())).append(",\"cells\":[");
+		String[] cellContents = this.getCellContents(row);
+		for (int idx = 0; idx < cellContents.length; idx++) {
+			if (idx > 0) {
+				this.out.append(',');
+			}
+			this.appendString(cellContents[idx]);
+		}
+		this.out.append("]}\n");
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.writer;
+
+import java.io.IOException;
+
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.entity.TableRow;
+
+/**
+ * Writes tables row by row to an output, nothing is buffered. Calls order:
+ * begin(), then for each table beginTable(), writeRow() for each row,
+ * endTable(), then end()
+ */
+public interface TableWriter {
+
+	void begin() throws IOException;
+
+	void beginTable(int pageIdx, int columnsCount) throws IOException;
+
+	void end() throws IOException;
+
+	void endTable() throws IOException;
+
+	default void write(final Table table) throws IOException {
+		this.beginTable(table.getPageIdx(), table.getColumnsCount());
+		for (TableRow row : table.getRows()) {
+			this.writeRow(row);
+		}
+		this.endTable();
+	}
+
+	void writeRow(TableRow row) throws IOException;
+}
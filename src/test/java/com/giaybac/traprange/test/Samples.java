@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Sample pdf files of _Docs and table comparisons shared by tests
+ */
+final class Samples {
+
+	/**
+	 * @param idx 1 to 5
+	 * @return
+	 */
+	static Path get(final int idx) {
+		return Paths.get(System.getProperty("user.dir"), "_Docs", "sample-" + idx + ".pdf");
+	}
+
+	/**
+	 * Page, columns count and html of each table, to compare extractions
+	 *
+	 * @param tables
+	 * @return
+	 */
+	static String toString(final List<Table> tables) {
+		return tables.stream().map(table -> table.getPageIdx() + "/" + table.getColumnsCount() + "\n" + table.toHtml())
+				.collect(Collectors.joining());
+	}
+
+	private Samples() {
+	}
+}
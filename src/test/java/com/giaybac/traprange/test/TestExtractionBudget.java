@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.giaybac.traprange.CancellationToken;
+import com.giaybac.traprange.ExtractionCache;
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.ExtractionResult;
+import com.giaybac.traprange.ExtractionStoppedException;
+import com.giaybac.traprange.LayoutTemplate;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Budgets stop an extraction with partial results and a status
+ */
+public class TestExtractionBudget {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void test() {
+		List<Table> tables = new PDFTableExtractor().setSource(Samples.get(1)).extract();
+		ExtractionResult result = new PDFTableExtractor().setSource(Samples.get(1))
+				.setTimeout(Duration.ofMinutes(1)).setPageTimeout(Duration.ofMinutes(1)).setMaxGlyphs(Long.MAX_VALUE)
+				.setMaxPageGlyphs(Integer.MAX_VALUE).setCancellationToken(new CancellationToken())
+				.extractWithStatus();
+		Assert.assertEquals(ExtractionResult.Status.COMPLETED, result.getStatus());
+		Assert.assertTrue(result.getSkippedPageIdxes().isEmpty());
+		Assert.assertEquals(tables.size(), result.getTables().size());
+		for (int idx = 0; idx < tables.size(); idx++) {
+			Assert.assertEquals(tables.get(idx).toHtml(), result.getTables().get(idx).toHtml());
+		}
+	}
+
+	@Test
+	public void testCancellation() {
+		LayoutTemplate template = new PDFTableExtractor().setSource(Samples.get(1)).extractTemplate(null);
+		CancellationToken cancellationToken = new CancellationToken();
+		// with a template, each table is built as soon as its page is stripped
+		ExtractionResult result = new PDFTableExtractor().setSource(Samples.get(1)).setTemplate(template)
+				.setCancellationToken(cancellationToken).setListener(new ExtractionListener() {
+					@Override
+					public void tableBuilt(final int pageIdx, final long duration, final int rowsCount,
+							final int columnsCount) {
+						cancellationToken.cancel();
+					}
+				}).extractWithStatus();
+		Assert.assertEquals(ExtractionResult.Status.CANCELLED, result.getStatus());
+		Assert.assertEquals(1, result.getTables().size());
+		Assert.assertEquals(0, result.getTables().get(0).getPageIdx());
+	}
+
+	@Test
+	public void testGlyphCeilings() throws IOException {
+		List<Integer> pageIdxes = new ArrayList<>();
+		new PDFTableExtractor().setSource(Samples.get(1)).setListener(new ExtractionListener() {
+			@Override
+			public void pageStripped(final int pageIdx, final long duration, final int glyphsCount) {
+				pageIdxes.add(pageIdx);
+			}
+		}).extract();
+		for (boolean glyphOnlyCapture : new boolean[] { false, true }) {
+			ExtractionResult result = new PDFTableExtractor().setSource(Samples.get(1)).setMaxPageGlyphs(1)
+					.setGlyphOnlyCapture(glyphOnlyCapture).setParallelism(glyphOnlyCapture ? 2 : 1)
+					.extractWithStatus();
+			Assert.assertEquals(ExtractionResult.Status.PAGES_SKIPPED, result.getStatus());
+			Assert.assertEquals(pageIdxes, result.getSkippedPageIdxes());
+			Assert.assertTrue(result.getTables().isEmpty());
+			result = new PDFTableExtractor().setSource(Samples.get(1)).setMaxGlyphs(1)
+					.setGlyphOnlyCapture(glyphOnlyCapture).extractWithStatus();
+			Assert.assertEquals(ExtractionResult.Status.GLYPH_LIMIT_EXCEEDED, result.getStatus());
+			Assert.assertTrue(result.getTables().isEmpty());
+		}
+		// partial results are not cached
+		Path directory = this.temporaryFolder.newFolder().toPath();
+		new PDFTableExtractor().setSource(Samples.get(1)).setMaxGlyphs(1)
+				.setCache(new ExtractionCache(directory, Long.MAX_VALUE)).extract();
+		try (Stream<Path> files = Files.list(directory)) {
+			Assert.assertEquals(0, files.count());
+		}
+	}
+
+	/**
+	 * Streams skip pages over their own budget and throw when the extraction stops
+	 */
+	@Test
+	public void testStream() {
+		try (Stream<Table> tables = new PDFTableExtractor().setSource(Samples.get(1)).setMaxPageGlyphs(1)
+				.extractStream()) {
+			Assert.assertEquals(0, tables.count());
+		}
+		// stopped by the column pass
+		try {
+			new PDFTableExtractor().setSource(Samples.get(1)).setTimeout(Duration.ofNanos(1)).extractStream().close();
+			Assert.fail("Extraction must be stopped");
+		} catch (ExtractionStoppedException ex) {
+			Assert.assertEquals(ExtractionResult.Status.TIMEOUT_EXCEEDED, ex.getStatus());
+		}
+		// stopped between tables, with and without template
+		LayoutTemplate template = new PDFTableExtractor().setSource(Samples.get(1)).extractTemplate(null);
+		for (boolean withTemplate : new boolean[] { false, true }) {
+			CancellationToken cancellationToken = new CancellationToken();
+			PDFTableExtractor extractor = new PDFTableExtractor().setSource(Samples.get(1))
+					.setCancellationToken(cancellationToken);
+			if (withTemplate) {
+				extractor.setTemplate(template);
+			}
+			try (Stream<Table> tables = extractor.extractStream()) {
+				Iterator<Table> tableIterator = tables.iterator();
+				Assert.assertEquals(0, tableIterator.next().getPageIdx());
+				cancellationToken.cancel();
+				tableIterator.hasNext();
+				Assert.fail("Extraction must be stopped");
+			} catch (ExtractionStoppedException ex) {
+				Assert.assertEquals(ExtractionResult.Status.CANCELLED, ex.getStatus());
+			}
+		}
+	}
+
+	@Test
+	public void testTimeout() {
+		ExtractionResult result = new PDFTableExtractor().setSource(Samples.get(1))
+				.setTimeout(Duration.ofNanos(1)).extractWithStatus();
+		Assert.assertEquals(ExtractionResult.Status.TIMEOUT_EXCEEDED, result.getStatus());
+		Assert.assertTrue(result.getTables().isEmpty());
+		// checked when each page ends, whatever its number of glyphs
+		for (boolean glyphOnlyCapture : new boolean[] { false, true }) {
+			result = new PDFTableExtractor().setSource(Samples.get(1)).setPageTimeout(Duration.ofNanos(1))
+					.setGlyphOnlyCapture(glyphOnlyCapture).extractWithStatus();
+			Assert.assertEquals(ExtractionResult.Status.PAGES_SKIPPED, result.getStatus());
+			// all 17 pages
+			Assert.assertEquals(17, result.getSkippedPageIdxes().size());
+			Assert.assertTrue(result.getTables().isEmpty());
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.giaybac.traprange.ExtractionCache;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Cached tables must be the same as extracted ones
+ */
+public class TestExtractionCache {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private long countEntries(final Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	@Test
+	public void test() throws IOException {
+		Path directory = this.temporaryFolder.newFolder().toPath();
+		ExtractionCache cache = new ExtractionCache(directory, Long.MAX_VALUE);
+		List<Table> tables = new PDFTableExtractor().setSource(Samples.get(5)).exceptLine(new int[] { 0 })
+				.extract();
+		List<Table> missedTables = new PDFTableExtractor().setSource(Samples.get(5)).exceptLine(new int[] { 0 })
+				.setCache(cache).extract();
+		Assert.assertEquals(Samples.toString(tables), Samples.toString(missedTables));
+		Assert.assertEquals(1, this.countEntries(directory));
+		// same content from a stream hits the entry
+		try (FileInputStream inputStream = new FileInputStream(Samples.get(5).toFile())) {
+			List<Table> cachedTables = new PDFTableExtractor().setSource(inputStream).exceptLine(new int[] { 0 })
+					.setCache(cache).extract();
+			Assert.assertEquals(Samples.toString(tables), Samples.toString(cachedTables));
+		}
+		Assert.assertEquals(1, this.countEntries(directory));
+		// other options, other entry
+		new PDFTableExtractor().setSource(Samples.get(5)).setCache(cache).extract();
+		Assert.assertEquals(2, this.countEntries(directory));
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		Path directory = this.temporaryFolder.newFolder().toPath();
+		ExtractionCache cache = new ExtractionCache(directory, 1);
+		new PDFTableExtractor().setSource(Samples.get(4)).setCache(cache).extract();
+		new PDFTableExtractor().setSource(Samples.get(5)).setCache(cache).extract();
+		Assert.assertEquals(0, this.countEntries(directory));
+		// entries already in the directory count in the cache size
+		new PDFTableExtractor().setSource(Samples.get(4)).setCache(new ExtractionCache(directory, Long.MAX_VALUE))
+				.extract();
+		long size;
+		try (Stream<Path> files = Files.list(directory)) {
+			size = files.mapToLong(file -> file.toFile().length()).sum();
+		}
+		new PDFTableExtractor().setSource(Samples.get(5)).setCache(new ExtractionCache(directory, size + 1))
+				.extract();
+		Assert.assertEquals(1, this.countEntries(directory));
+	}
+}
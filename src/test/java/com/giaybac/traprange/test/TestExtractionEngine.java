@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionEngine;
+import com.giaybac.traprange.PDFTableExtractor;
+
+/**
+ * One engine extracts documents from many threads, like one extractor per
+ * document
+ */
+public class TestExtractionEngine {
+
+	@Test
+	public void test() throws InterruptedException, ExecutionException {
+		List<String> expected = new ArrayList<>();
+		for (int idx = 1; idx <= 5; idx++) {
+			expected.add(Samples.toString(new PDFTableExtractor().exceptLine(new int[] { 0, -1 }).exceptPage(1)
+					.setSource(Samples.get(idx)).extract()));
+		}
+		PDFTableExtractor extractor = new PDFTableExtractor().exceptLine(new int[] { 0, -1 }).exceptPage(1);
+		ExtractionEngine engine = extractor.toEngine();
+		// neither the extractor nor sessions change the engine
+		extractor.exceptPage(0);
+		engine.newExtractor().exceptPage(2).setSource(Samples.get(1)).extract();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int round = 0; round < 4; round++) {
+				for (int idx = 1; idx <= 5; idx++) {
+					Path sample = Samples.get(idx);
+					results.add(executor.submit(() -> Samples.toString(engine.extract(sample))));
+				}
+			}
+			for (int idx = 0; idx < results.size(); idx++) {
+				Assert.assertEquals(expected.get(idx % 5), results.get(idx).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
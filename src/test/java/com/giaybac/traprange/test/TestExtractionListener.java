@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Every phase of an extraction is reported once per document or per page
+ */
+public class TestExtractionListener {
+
+	private static class RecordingListener implements ExtractionListener {
+		private long bytesCount;
+		private int columnRangesCount = -1;
+		// pages are reported from worker threads with parallelism
+		private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		private int tablesCount = -1;
+
+		@Override
+		public void columnRangesBuilt(final long duration, final int columnRangesCount) {
+			this.columnRangesCount = columnRangesCount;
+			this.events.add("columnRanges");
+		}
+
+		@Override
+		public void documentExtracted(final long duration, final int tablesCount) {
+			this.tablesCount = tablesCount;
+			this.events.add("extracted");
+		}
+
+		@Override
+		public void documentLoaded(final long duration, final long bytesCount, final int pagesCount) {
+			this.bytesCount = bytesCount;
+			this.events.add("loaded");
+		}
+
+		@Override
+		public void lineRangesBuilt(final int pageIdx, final long duration, final int lineRangesCount) {
+			this.events.add("lineRanges@" + pageIdx);
+		}
+
+		@Override
+		public void pageStripped(final int pageIdx, final long duration, final int glyphsCount) {
+			Assert.assertTrue(duration >= 0);
+			this.events.add("stripped@" + pageIdx);
+		}
+
+		@Override
+		public void tableBuilt(final int pageIdx, final long duration, final int rowsCount, final int columnsCount) {
+			this.events.add("table@" + pageIdx);
+		}
+	}
+
+	@Test
+	public void test() throws IOException {
+		RecordingListener listener = new RecordingListener();
+		List<Table> tables = new PDFTableExtractor().setSource(Samples.get(1)).setListener(listener).extract();
+		Assert.assertEquals(Files.size(Samples.get(1)), listener.bytesCount);
+		Assert.assertEquals(tables.size(), listener.tablesCount);
+		Assert.assertEquals(tables.get(0).getColumnsCount(), listener.columnRangesCount);
+		List<String> expectedEvents = new ArrayList<>();
+		expectedEvents.add("loaded");
+		for (int pageIdx = 0; pageIdx < tables.size(); pageIdx++) {
+			expectedEvents.add("stripped@" + pageIdx);
+			expectedEvents.add("lineRanges@" + pageIdx);
+		}
+		expectedEvents.add("columnRanges");
+		for (int pageIdx = 0; pageIdx < tables.size(); pageIdx++) {
+			expectedEvents.add("table@" + pageIdx);
+		}
+		expectedEvents.add("extracted");
+		Assert.assertEquals(expectedEvents, listener.events);
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		RecordingListener listener = new RecordingListener();
+		try (FileInputStream inputStream = new FileInputStream(Samples.get(1).toFile())) {
+			List<Table> tables = new PDFTableExtractor().setSource(inputStream).setParallelism(3)
+					.setListener(listener).extract();
+			// workers load their own copy of the document, the document is reported once
+			Assert.assertEquals(1, Collections.frequency(listener.events, "loaded"));
+			Assert.assertEquals("loaded", listener.events.get(0));
+			Assert.assertEquals(Files.size(Samples.get(1)), listener.bytesCount);
+			for (int pageIdx = 0; pageIdx < tables.size(); pageIdx++) {
+				Assert.assertEquals(1, Collections.frequency(listener.events, "stripped@" + pageIdx));
+			}
+			Assert.assertEquals("extracted", listener.events.get(listener.events.size() - 1));
+		}
+	}
+
+	@Test
+	public void testStream() throws IOException {
+		RecordingListener listener = new RecordingListener();
+		try (FileInputStream inputStream = new FileInputStream(Samples.get(1).toFile());
+				Stream<Table> stream = new PDFTableExtractor().setSource(inputStream).setListener(listener)
+						.extractStream()) {
+			List<Table> tables = stream.collect(Collectors.toList());
+			Assert.assertEquals(Files.size(Samples.get(1)), listener.bytesCount);
+			Assert.assertEquals(tables.size(), listener.tablesCount);
+			// the column pass is reported as a whole, then pages once, when their table is built
+			List<String> expectedEvents = new ArrayList<>();
+			expectedEvents.add("loaded");
+			expectedEvents.add("columnRanges");
+			for (int pageIdx = 0; pageIdx < tables.size(); pageIdx++) {
+				expectedEvents.add("stripped@" + pageIdx);
+				expectedEvents.add("lineRanges@" + pageIdx);
+				expectedEvents.add("table@" + pageIdx);
+			}
+			expectedEvents.add("extracted");
+			Assert.assertEquals(expectedEvents, listener.events);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.ExtractionServer;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.writer.CsvTableWriter;
+
+/**
+ * Extractions over HTTP match direct extractions, requests over the admission
+ * queue are rejected
+ */
+public class TestExtractionServer {
+
+	private ExtractionServer server;
+
+	@After
+	public void stopServer() {
+		if (this.server != null) {
+			this.server.stop(0);
+		}
+	}
+
+	private HttpURLConnection post(final String query, final byte[] body) throws IOException {
+		URL url = new URL("http://localhost:" + this.server.getPort() + "/extract" + query);
+		HttpURLConnection retVal = (HttpURLConnection) url.openConnection();
+		retVal.setRequestMethod("POST");
+		retVal.setDoOutput(true);
+		try (OutputStream out = retVal.getOutputStream()) {
+			out.write(body);
+		}
+		return retVal;
+	}
+
+	private String read(final InputStream in) throws IOException {
+		try (InputStream closedIn = in) {
+			return new String(closedIn.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private ExtractionServer startServer(final int concurrency, final int queueCapacity) throws IOException {
+		this.server = new ExtractionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), concurrency,
+				queueCapacity);
+		this.server.start();
+		return this.server;
+	}
+
+	@Test
+	public void test() throws IOException {
+		Path sample = Samples.get(5);
+		StringBuilder expected = new StringBuilder();
+		CsvTableWriter writer = new CsvTableWriter(expected);
+		writer.begin();
+		for (Table table : new PDFTableExtractor().setSource(sample).exceptLine(new int[] { 0 }).extract()) {
+			writer.write(table);
+		}
+		writer.end();
+
+		this.startServer(2, 2);
+		HttpURLConnection connection = this.post("?f=csv&el=0", Files.readAllBytes(sample));
+		Assert.assertEquals(200, connection.getResponseCode());
+		Assert.assertTrue(connection.getContentType().startsWith("text/csv"));
+		Assert.assertEquals(expected.toString(), this.read(connection.getInputStream()));
+		// invalid requests
+		Assert.assertEquals(400, this.post("?template=/etc/passwd", Files.readAllBytes(sample)).getResponseCode());
+		Assert.assertEquals(400, this.post("?f=xml", Files.readAllBytes(sample)).getResponseCode());
+		Assert.assertEquals(422, this.post("?f=csv", "not a pdf".getBytes(StandardCharsets.UTF_8)).getResponseCode());
+	}
+
+	@Test
+	public void testAdmission() throws Exception {
+		CountDownLatch loaded = new CountDownLatch(1);
+		CountDownLatch released = new CountDownLatch(1);
+		this.startServer(1, 0).setListener(new ExtractionListener() {
+			@Override
+			public void documentLoaded(final long duration, final long bytesCount, final int pagesCount) {
+				// the only slot is held until the over-capacity request is answered
+				loaded.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			byte[] sample = Files.readAllBytes(Samples.get(5));
+			Future<Integer> running = executor.submit(() -> this.post("?f=csv", sample).getResponseCode());
+			Assert.assertTrue(loaded.await(30, TimeUnit.SECONDS));
+			HttpURLConnection connection = this.post("?f=csv", sample);
+			Assert.assertEquals(429, connection.getResponseCode());
+			Assert.assertEquals("1", connection.getHeaderField("Retry-After"));
+			released.countDown();
+			Assert.assertEquals(200, running.get().intValue());
+		} finally {
+			released.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testTimeout() throws IOException {
+		this.server = new ExtractionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 0)
+				.setTimeout(Duration.ofNanos(1));
+		this.server.start();
+		Assert.assertEquals(503, this.post("?f=csv", Files.readAllBytes(Samples.get(5))).getResponseCode());
+	}
+}
@@ -6,13 +6,19 @@
 package com.giaybac.traprange.test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.giaybac.traprange.PDFTableExtractor;
@@ -65,4 +71,56 @@ public class TestExtractor {
 			}
 		}
 	}
+
+	@Test
+	public void testParallel() {
+		String homeDirectory = System.getProperty("user.dir");
+		String sourceDirectory = Paths.get(homeDirectory, "_Docs").toString();
+		for (int idx = 0; idx < 5; idx++) {
+			String filePath = sourceDirectory + File.separator + "sample-" + (idx + 1) + ".pdf";
+			List<Table> tables = new PDFTableExtractor().setSource(filePath).extract();
+			List<Table> parallelTables = new PDFTableExtractor().setSource(filePath).setParallelism(3).extract();
+			Assert.assertEquals(tables.size(), parallelTables.size());
+			for (int tableIdx = 0; tableIdx < tables.size(); tableIdx++) {
+				Assert.assertEquals(tables.get(tableIdx).getPageIdx(), parallelTables.get(tableIdx).getPageIdx());
+				Assert.assertEquals(tables.get(tableIdx).toString(), parallelTables.get(tableIdx).toString());
+			}
+		}
+	}
+
+	@Test
+	public void testStream() {
+		String homeDirectory = System.getProperty("user.dir");
+		String sourceDirectory = Paths.get(homeDirectory, "_Docs").toString();
+		for (int idx = 0; idx < 5; idx++) {
+			String filePath = sourceDirectory + File.separator + "sample-" + (idx + 1) + ".pdf";
+			List<Table> tables = new PDFTableExtractor().setSource(filePath).exceptLine(new int[] { 0 }).extract();
+			List<Table> streamedTables;
+			try (Stream<Table> stream = new PDFTableExtractor().setSource(filePath).exceptLine(new int[] { 0 })
+					.extractStream()) {
+				streamedTables = stream.collect(Collectors.toList());
+			}
+			Assert.assertEquals(tables.size(), streamedTables.size());
+			for (int tableIdx = 0; tableIdx < tables.size(); tableIdx++) {
+				Assert.assertEquals(tables.get(tableIdx).getPageIdx(), streamedTables.get(tableIdx).getPageIdx());
+				Assert.assertEquals(tables.get(tableIdx).toString(), streamedTables.get(tableIdx).toString());
+			}
+		}
+	}
+
+	@Test
+	public void testMemoryUsageSetting() throws IOException {
+		String homeDirectory = System.getProperty("user.dir");
+		String filePath = Paths.get(homeDirectory, "_Docs", "sample-1.pdf").toString();
+		List<Table> tables = new PDFTableExtractor().setSource(Paths.get(filePath))
+				.setMemoryUsageSetting(MemoryUsageSetting.setupMixed(64 * 1024)).extract();
+		try (InputStream inputStream = new FileInputStream(filePath)) {
+			List<Table> tempFileTables = new PDFTableExtractor().setSource(inputStream)
+					.setMemoryUsageSetting(MemoryUsageSetting.setupTempFileOnly()).extract();
+			Assert.assertEquals(tables.size(), tempFileTables.size());
+			for (int tableIdx = 0; tableIdx < tables.size(); tableIdx++) {
+				Assert.assertEquals(tables.get(tableIdx).toString(), tempFileTables.get(tableIdx).toString());
+			}
+		}
+	}
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Extraction phases are recorded with the document and page behind them
+ */
+public class TestFlightRecorderEvents {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private List<RecordedEvent> filter(final List<RecordedEvent> events, final String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals("com.giaybac.traprange." + name))
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void test() throws IOException {
+		Path sample = Paths.get(System.getProperty("user.dir"), "_Docs", "sample-1.pdf");
+		Path recordingFile = this.temporaryFolder.newFile("extraction.jfr").toPath();
+		List<Table> tables;
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] { "DocumentExtraction", "PageCapture", "TrapRange", "TableAssembly" }) {
+				recording.enable("com.giaybac.traprange." + name);
+			}
+			recording.start();
+			tables = new PDFTableExtractor().setSource(sample).setDocumentId("sample-1").extract();
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+		List<RecordedEvent> documentEvents = this.filter(events, "DocumentExtraction");
+		Assert.assertEquals(1, documentEvents.size());
+		Assert.assertEquals("sample-1", documentEvents.get(0).getString("document"));
+		Assert.assertEquals(tables.size(), documentEvents.get(0).getInt("tablesCount"));
+		List<RecordedEvent> pageEvents = this.filter(events, "PageCapture");
+		Assert.assertEquals(tables.size(), pageEvents.size());
+		for (int pageIdx = 0; pageIdx < pageEvents.size(); pageIdx++) {
+			Assert.assertEquals(pageIdx, pageEvents.get(pageIdx).getInt("pageIdx"));
+			Assert.assertTrue(pageEvents.get(pageIdx).getInt("glyphsCount") > 0);
+		}
+		List<RecordedEvent> trapRangeEvents = this.filter(events, "TrapRange");
+		Assert.assertEquals(tables.size() + 1, trapRangeEvents.size());
+		Assert.assertEquals(1, trapRangeEvents.stream().filter(event -> event.getString("kind").equals("column"))
+				.filter(event -> event.getInt("rangesCount") == tables.get(0).getColumnsCount()).count());
+		List<RecordedEvent> tableEvents = this.filter(events, "TableAssembly");
+		Assert.assertEquals(tables.size(), tableEvents.size());
+		Assert.assertEquals(tables.get(0).getRows().size(), tableEvents.get(0).getInt("rowsCount"));
+	}
+}
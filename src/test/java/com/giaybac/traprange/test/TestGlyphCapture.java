@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Compare glyph-only capture with PDFTextStripper capture on sample files
+ */
+public class TestGlyphCapture {
+
+	private List<Table> extract(final String filePath, final boolean glyphOnlyCapture) {
+		return new PDFTableExtractor().setSource(filePath).setGlyphOnlyCapture(glyphOnlyCapture).extract();
+	}
+
+	@Test
+	public void test() {
+		String homeDirectory = System.getProperty("user.dir");
+		String sourceDirectory = Paths.get(homeDirectory, "_Docs").toString();
+		for (int idx = 0; idx < 5; idx++) {
+			String filePath = sourceDirectory + File.separator + "sample-" + (idx + 1) + ".pdf";
+			List<Table> tables = this.extract(filePath, false);
+			List<Table> glyphTables = this.extract(filePath, true);
+			// samples have no overlapping or accented glyphs: both captures give the same tables
+			Assert.assertEquals(tables.size(), glyphTables.size());
+			for (int tableIdx = 0; tableIdx < tables.size(); tableIdx++) {
+				Assert.assertEquals(tables.get(tableIdx).toString(), glyphTables.get(tableIdx).toString());
+			}
+		}
+	}
+}
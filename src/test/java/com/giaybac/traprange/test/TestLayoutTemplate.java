@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.giaybac.traprange.LayoutTemplate;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.entity.TableCell;
+import com.giaybac.traprange.entity.TableRow;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Range;
+
+/**
+ * Extraction with a template learned from the same document must give the same
+ * tables as column inference
+ */
+public class TestLayoutTemplate {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private PDFTableExtractor createExtractor(final int idx) {
+		return new PDFTableExtractor().setSource(Samples.get(idx)).exceptLine(new int[] { 0 });
+	}
+
+	/**
+	 * Cell contents by column idx, without trailing empty cells
+	 *
+	 * @param row
+	 * @param columnIdxes columns to keep
+	 * @return
+	 */
+	private List<String> getContents(final TableRow row, final List<Integer> columnIdxes) {
+		List<String> retVal = new ArrayList<>();
+		for (int columnIdx : columnIdxes) {
+			String content = "";
+			for (TableCell cell : row.getCells()) {
+				if (cell.getIdx() == columnIdx) {
+					content = cell.getContent();
+				}
+			}
+			retVal.add(content);
+		}
+		while (!retVal.isEmpty() && retVal.get(retVal.size() - 1).isEmpty()) {
+			retVal.remove(retVal.size() - 1);
+		}
+		return retVal;
+	}
+
+	@Test
+	public void test() throws IOException {
+		for (int idx = 1; idx <= 5; idx++) {
+			Path templatePath = this.temporaryFolder.newFile().toPath();
+			this.createExtractor(idx).exceptLine(0, new int[] { 1 }).extractTemplate("sample-" + idx)
+					.write(templatePath);
+			LayoutTemplate template = LayoutTemplate.read(templatePath);
+			Assert.assertEquals("sample-" + idx, template.getName());
+
+			String expected = Samples.toString(this.createExtractor(idx).exceptLine(0, new int[] { 1 }).extract());
+			// line filters come with the template
+			Assert.assertEquals(expected, Samples.toString(this.createExtractor(idx).setTemplate(template).extract()));
+			try (Stream<Table> tables = this.createExtractor(idx).setTemplate(template).extractStream()) {
+				Assert.assertEquals(expected, Samples.toString(tables.collect(Collectors.toList())));
+			}
+		}
+	}
+
+	/**
+	 * Unordered or overlapping columns are rejected
+	 */
+	@Test
+	public void testInvalidColumns() throws IOException {
+		for (String columns : new String[] { "101..180,40..95", "40..101,95..180", "40..95,95..180" }) {
+			Path templatePath = this.temporaryFolder.newFile().toPath();
+			Files.write(templatePath, Arrays.asList("columns=" + columns), StandardCharsets.UTF_8);
+			try {
+				LayoutTemplate.read(templatePath);
+				Assert.fail("Columns " + columns + " must be rejected");
+			} catch (IOException ex) {
+				// expected
+			}
+		}
+		try {
+			new LayoutTemplate(null, Arrays.asList(Range.closed(101, 180), Range.closed(40, 95)),
+					ImmutableListMultimap.of());
+			Assert.fail("Unordered columns must be rejected");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Glyphs outside all columns of a template are ignored, the next glyphs stay
+	 * in their own columns
+	 */
+	@Test
+	public void testMissingColumn() {
+		List<Table> tables = this.createExtractor(1).extract();
+		List<Range<Integer>> columnRanges = new ArrayList<>(
+				this.createExtractor(1).extractTemplate(null).getColumnRanges());
+		Assert.assertTrue(columnRanges.size() > 2);
+		columnRanges.remove(1);
+		List<Table> templateTables = this.createExtractor(1)
+				.setTemplate(new LayoutTemplate(null, columnRanges, ImmutableListMultimap.of())).extract();
+		Assert.assertEquals(tables.size(), templateTables.size());
+		List<Integer> keptColumnIdxes = new ArrayList<>();
+		List<Integer> templateColumnIdxes = new ArrayList<>();
+		for (int columnIdx = 0; columnIdx <= columnRanges.size(); columnIdx++) {
+			if (columnIdx != 1) {
+				keptColumnIdxes.add(columnIdx);
+			}
+			if (columnIdx < columnRanges.size()) {
+				templateColumnIdxes.add(columnIdx);
+			}
+		}
+		for (int tableIdx = 0; tableIdx < tables.size(); tableIdx++) {
+			List<TableRow> rows = tables.get(tableIdx).getRows();
+			List<TableRow> templateRows = templateTables.get(tableIdx).getRows();
+			Assert.assertEquals(rows.size(), templateRows.size());
+			for (int rowIdx = 0; rowIdx < rows.size(); rowIdx++) {
+				Assert.assertEquals(this.getContents(rows.get(rowIdx), keptColumnIdxes),
+						this.getContents(templateRows.get(rowIdx), templateColumnIdxes));
+			}
+		}
+	}
+}
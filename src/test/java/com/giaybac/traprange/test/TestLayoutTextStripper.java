@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.giaybac.traprange.PDFLayoutTextStripper;
+
+/**
+ * Layout text of sample PDFs must stay the same as _Docs/result/layout/*.txt
+ */
+public class TestLayoutTextStripper {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private void assertLayout(final String pdfFile, final String resultFile) throws IOException {
+		String homeDirectory = System.getProperty("user.dir");
+		Path resultPath = Paths.get(homeDirectory, "_Docs", "result", "layout", resultFile);
+		try (PDDocument document = PDDocument.load(Paths.get(homeDirectory, "_Docs", pdfFile).toFile())) {
+			String expected = new String(Files.readAllBytes(resultPath), StandardCharsets.UTF_8);
+			Assert.assertEquals(expected, new PDFLayoutTextStripper().getText(document));
+		}
+	}
+
+	@Test
+	public void test() throws IOException {
+		this.assertLayout("invoice/sample-invoice.pdf", "sample-invoice.txt");
+		this.assertLayout("sample-2.pdf", "sample-2.txt");
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		String homeDirectory = System.getProperty("user.dir");
+		Path resultPath = Paths.get(homeDirectory, "_Docs", "result", "layout", "sample-2.txt");
+		try (PDDocument document = PDDocument.load(Paths.get(homeDirectory, "_Docs", "sample-2.pdf").toFile())) {
+			PDFLayoutTextStripper stripper = new PDFLayoutTextStripper();
+			StringBuilder text = new StringBuilder();
+			for (int pageIdx = 0; pageIdx < document.getNumberOfPages(); pageIdx++) {
+				try (Stream<String> lines = stripper.getLines(document, pageIdx)) {
+					lines.forEach(line -> text.append(line).append('\n'));
+				}
+			}
+			Assert.assertEquals(new String(Files.readAllBytes(resultPath), StandardCharsets.UTF_8), text.toString());
+		}
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		String homeDirectory = System.getProperty("user.dir");
+		Path resultPath = Paths.get(homeDirectory, "_Docs", "result", "layout", "sample-2.txt");
+		PDFLayoutTextStripper stripper = new PDFLayoutTextStripper();
+		stripper.setParallelism(3);
+		Assert.assertEquals(new String(Files.readAllBytes(resultPath), StandardCharsets.UTF_8),
+				stripper.getText(Paths.get(homeDirectory, "_Docs", "sample-2.pdf")));
+	}
+
+	@Test
+	public void testParallelSettings() throws IOException {
+		PDFLayoutTextStripper stripper = new PDFLayoutTextStripper();
+		stripper.setStartPage(2);
+		stripper.setEndPage(12);
+		stripper.setSortByPosition(true);
+		stripper.setSuppressDuplicateOverlappingText(false);
+		stripper.setSpacingTolerance(1f);
+		stripper.setAverageCharTolerance(0.5f);
+		String expected;
+		try (PDDocument document = PDDocument.load(Samples.get(3).toFile())) {
+			expected = stripper.getText(document);
+		}
+		stripper.setParallelism(3);
+		Assert.assertEquals(expected, stripper.getText(Samples.get(3)));
+		// workers load an encrypted file with its password
+		Path encryptedPath = this.temporaryFolder.newFile().toPath();
+		try (PDDocument document = PDDocument.load(Samples.get(3).toFile())) {
+			document.protect(new StandardProtectionPolicy("owner", "user", new AccessPermission()));
+			document.save(encryptedPath.toFile());
+		}
+		Assert.assertEquals(expected, stripper.getText(encryptedPath, "user"));
+	}
+}
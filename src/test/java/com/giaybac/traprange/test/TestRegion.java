@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Glyphs outside crop regions are not extracted
+ */
+public class TestRegion {
+
+	private PDFTableExtractor createExtractor(final boolean glyphOnlyCapture, final Map<Integer, Integer> glyphsCounts) {
+		return new PDFTableExtractor().setSource(Samples.get(1)).setGlyphOnlyCapture(glyphOnlyCapture)
+				.setListener(new ExtractionListener() {
+					@Override
+					public void pageStripped(final int pageIdx, final long duration, final int glyphsCount) {
+						glyphsCounts.put(pageIdx, glyphsCount);
+					}
+				});
+	}
+
+	@Test
+	public void test() {
+		for (boolean glyphOnlyCapture : new boolean[] { false, true }) {
+			Map<Integer, Integer> glyphsCounts = new HashMap<>();
+			String expected = Samples.toString(this.createExtractor(glyphOnlyCapture, glyphsCounts).extract());
+			// whole pages
+			Assert.assertEquals(expected, Samples.toString(this.createExtractor(glyphOnlyCapture, new HashMap<>())
+					.setRegion(new Rectangle2D.Float(0, 0, 10000, 10000)).extract()));
+			// top half of pages
+			Map<Integer, Integer> regionGlyphsCounts = new HashMap<>();
+			this.createExtractor(glyphOnlyCapture, regionGlyphsCounts).setRegion(new Rectangle2D.Float(0, 0, 10000, 400))
+					.extract();
+			for (int pageIdx : glyphsCounts.keySet()) {
+				Assert.assertTrue(regionGlyphsCounts.get(pageIdx) > 0);
+				Assert.assertTrue(regionGlyphsCounts.get(pageIdx) < glyphsCounts.get(pageIdx));
+			}
+			// nothing in the first page
+			List<Table> tables = this.createExtractor(glyphOnlyCapture, new HashMap<>())
+					.setRegion(new Rectangle2D.Float(0, 0, 10000, 10000)).setRegion(0, new Rectangle2D.Float())
+					.extract();
+			Assert.assertEquals(glyphsCounts.size() - 1, tables.size());
+			Assert.assertEquals(1, tables.get(0).getPageIdx());
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.LayoutTemplate;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+
+/**
+ * Tables are published in order and only built when requested
+ */
+public class TestTablePublisher {
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void test() throws InterruptedException, ExecutionException {
+		List<Table> expected = new PDFTableExtractor().setSource(Samples.get(1)).extract();
+		CompletableFuture<List<Table>> result = new CompletableFuture<>();
+		new PDFTableExtractor().setSource(Samples.get(1)).extractPublisher(this.executor)
+				.subscribe(new Flow.Subscriber<Table>() {
+					private Flow.Subscription subscription;
+					private final List<Table> tables = new ArrayList<>();
+
+					@Override
+					public void onComplete() {
+						result.complete(this.tables);
+					}
+
+					@Override
+					public void onError(final Throwable throwable) {
+						result.completeExceptionally(throwable);
+					}
+
+					@Override
+					public void onNext(final Table table) {
+						this.tables.add(table);
+						this.subscription.request(1);
+					}
+
+					@Override
+					public void onSubscribe(final Flow.Subscription subscription) {
+						this.subscription = subscription;
+						subscription.request(1);
+					}
+				});
+		List<Table> tables = result.get();
+		Assert.assertEquals(expected.size(), tables.size());
+		for (int idx = 0; idx < expected.size(); idx++) {
+			Assert.assertEquals(expected.get(idx).getPageIdx(), tables.get(idx).getPageIdx());
+			Assert.assertEquals(expected.get(idx).toHtml(), tables.get(idx).toHtml());
+		}
+	}
+
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		LayoutTemplate template = new PDFTableExtractor().setSource(Samples.get(1)).extractTemplate(null);
+		AtomicInteger strippedPagesCount = new AtomicInteger();
+		BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+		Flow.Subscription[] subscription = new Flow.Subscription[1];
+		// with a template, a page is stripped when its table is requested
+		new PDFTableExtractor().setSource(Samples.get(1)).setTemplate(template)
+				.setListener(new ExtractionListener() {
+					@Override
+					public void pageStripped(final int pageIdx, final long duration, final int glyphsCount) {
+						strippedPagesCount.incrementAndGet();
+					}
+				}).extractPublisher(this.executor).subscribe(new Flow.Subscriber<Table>() {
+					@Override
+					public void onComplete() {
+						signals.add("complete");
+					}
+
+					@Override
+					public void onError(final Throwable throwable) {
+						signals.add(throwable);
+					}
+
+					@Override
+					public void onNext(final Table table) {
+						signals.add(table);
+					}
+
+					@Override
+					public void onSubscribe(final Flow.Subscription newSubscription) {
+						subscription[0] = newSubscription;
+					}
+				});
+		Assert.assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(0, strippedPagesCount.get());
+		subscription[0].request(2);
+		Assert.assertEquals(0, ((Table) signals.poll(10, TimeUnit.SECONDS)).getPageIdx());
+		Assert.assertEquals(1, ((Table) signals.poll(10, TimeUnit.SECONDS)).getPageIdx());
+		Assert.assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(2, strippedPagesCount.get());
+		// nothing is signaled after cancellation
+		subscription[0].cancel();
+		subscription[0].request(1);
+		Assert.assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(2, strippedPagesCount.get());
+	}
+
+	@Test
+	public void testError() throws InterruptedException {
+		BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+		Flow.Subscriber<Table> subscriber = new Flow.Subscriber<Table>() {
+			@Override
+			public void onComplete() {
+				signals.add("complete");
+			}
+
+			@Override
+			public void onError(final Throwable throwable) {
+				signals.add(throwable);
+			}
+
+			@Override
+			public void onNext(final Table table) {
+				signals.add(table);
+			}
+
+			@Override
+			public void onSubscribe(final Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+		};
+		Flow.Publisher<Table> publisher = new PDFTableExtractor()
+				.setSource(new ByteArrayInputStream("not a pdf".getBytes(StandardCharsets.UTF_8)))
+				.extractPublisher(this.executor);
+		publisher.subscribe(subscriber);
+		Assert.assertTrue(signals.poll(10, TimeUnit.SECONDS) instanceof RuntimeException);
+		// a source is published once
+		publisher.subscribe(subscriber);
+		Assert.assertTrue(signals.poll(10, TimeUnit.SECONDS) instanceof IllegalStateException);
+		Assert.assertNull(signals.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * A subscriber throwing from onNext is cancelled, not signaled its own error
+	 */
+	@Test
+	public void testSubscriberError() throws InterruptedException {
+		BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+		new PDFTableExtractor().setSource(Samples.get(1)).extractPublisher(this.executor)
+				.subscribe(new Flow.Subscriber<Table>() {
+					@Override
+					public void onComplete() {
+						signals.add("complete");
+					}
+
+					@Override
+					public void onError(final Throwable throwable) {
+						signals.add(throwable);
+					}
+
+					@Override
+					public void onNext(final Table table) {
+						signals.add(table);
+						throw new IllegalStateException("Subscriber failure");
+					}
+
+					@Override
+					public void onSubscribe(final Flow.Subscription subscription) {
+						subscription.request(Long.MAX_VALUE);
+					}
+				});
+		Assert.assertTrue(signals.poll(10, TimeUnit.SECONDS) instanceof Table);
+		Assert.assertNull(signals.poll(500, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.ExtractionListener;
+import com.giaybac.traprange.PDFTableExtractor;
+import com.giaybac.traprange.entity.Table;
+import com.giaybac.traprange.entity.TableCell;
+import com.giaybac.traprange.entity.TableRow;
+import com.giaybac.traprange.writer.CsvTableWriter;
+import com.giaybac.traprange.writer.JsonLinesTableWriter;
+import com.giaybac.traprange.writer.TableWriter;
+
+/**
+ * Escaping of CSV and JSON lines writers, rows written while tables are built
+ */
+public class TestTableWriter {
+
+	private Table createTable() {
+		Table retVal = new Table(1, 3);
+		TableRow row = new TableRow(0);
+		row.getCells().add(new TableCell(0, "a,b"));
+		row.getCells().add(new TableCell(2, "say \"hi\"\n"));
+		retVal.getRows().add(row);
+		return retVal;
+	}
+
+	private String write(final TableWriter writer, final StringBuilder out) throws IOException {
+		writer.begin();
+		writer.write(this.createTable());
+		writer.end();
+		return out.toString();
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		StringBuilder out = new StringBuilder();
+		Assert.assertEquals("2,\"a,b\",,\"say \"\"hi\"\"\n\"\r\n", this.write(new CsvTableWriter(out), out));
+	}
+
+	@Test
+	public void testExtract() throws IOException {
+		StringBuilder expected = new StringBuilder();
+		TableWriter expectedWriter = new CsvTableWriter(expected);
+		expectedWriter.begin();
+		for (Table table : new PDFTableExtractor().setSource(Samples.get(5)).extract()) {
+			expectedWriter.write(table);
+		}
+		expectedWriter.end();
+
+		StringBuilder out = new StringBuilder();
+		List<Integer> writtenRowsCounts = new ArrayList<>();
+		int[] rowsCount = { 0 };
+		CsvTableWriter writer = new CsvTableWriter(out) {
+			@Override
+			public void writeRow(final TableRow row) throws IOException {
+				super.writeRow(row);
+				rowsCount[0]++;
+			}
+		};
+		// rows are written before the table is reported built
+		int tablesCount = new PDFTableExtractor().setSource(Samples.get(5)).setListener(new ExtractionListener() {
+			@Override
+			public void tableBuilt(final int pageIdx, final long duration, final int tableRowsCount,
+					final int columnsCount) {
+				writtenRowsCounts.add(rowsCount[0]);
+				Assert.assertEquals(tableRowsCount, rowsCount[0]);
+				rowsCount[0] = 0;
+			}
+		}).extract(writer);
+		Assert.assertEquals(expected.toString(), out.toString());
+		Assert.assertEquals(tablesCount, writtenRowsCounts.size());
+	}
+
+	@Test
+	public void testJsonLines() throws IOException {
+		StringBuilder out = new StringBuilder();
+		Assert.assertEquals("{\"page\":2,\"row\":0,\"cells\":[\"a,b\",\"\",\"say \\\"hi\\\"\\n\"]}\n",
+				this.write(new JsonLinesTableWriter(out), out));
+	}
+}
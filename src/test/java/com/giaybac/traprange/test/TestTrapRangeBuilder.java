@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2015, GIAYBAC
+ *
+ * Released under the MIT license
+ */
+package com.giaybac.traprange.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.giaybac.traprange.TrapRangeBuilder;
+import com.google.common.collect.Range;
+
+/**
+ * Compare TrapRangeBuilder with joining ranges by Range.isConnected/span
+ */
+public class TestTrapRangeBuilder {
+
+	private List<Range<Integer>> join(final List<Range<Integer>> ranges) {
+		List<Range<Integer>> sortedRanges = new ArrayList<>(ranges);
+		sortedRanges.sort((o1, o2) -> o1.lowerEndpoint().compareTo(o2.lowerEndpoint()));
+		List<Range<Integer>> retVal = new ArrayList<>();
+		for (Range<Integer> range : sortedRanges) {
+			if (!retVal.isEmpty() && retVal.get(retVal.size() - 1).isConnected(range)) {
+				retVal.set(retVal.size() - 1, retVal.get(retVal.size() - 1).span(range));
+			} else {
+				retVal.add(range);
+			}
+		}
+		return retVal;
+	}
+
+	@Test
+	public void test() {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			List<Range<Integer>> ranges = new ArrayList<>();
+			TrapRangeBuilder builder = new TrapRangeBuilder();
+			int rangesCount = random.nextInt(500);
+			for (int idx = 0; idx < rangesCount; idx++) {
+				int lowerEndpoint = random.nextInt(2000) - 100;
+				int upperEndpoint = lowerEndpoint + random.nextInt(20);
+				ranges.add(Range.closed(lowerEndpoint, upperEndpoint));
+				if (idx % 2 == 0) {
+					builder.addRange(lowerEndpoint, upperEndpoint);
+				} else {
+					builder.addRange(Range.closed(lowerEndpoint, upperEndpoint));
+				}
+			}
+			Assert.assertEquals(this.join(ranges), builder.build());
+		}
+	}
+}
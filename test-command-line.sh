@@ -22,3 +22,7 @@ java -jar traprange.lastest.jar -in "$home/sample-$idx.pdf" -out "$home/result/s
 idx=5
 java -jar traprange.lastest.jar -in "$home/sample-$idx.pdf" -out "$home/result/sample-$idx.html" -el "0@0,1@0"
 
+
+# Batch: all samples in one JVM with 4 workers
+java -jar traprange.lastest.jar -in "$home/sample-*.pdf" -out "$home/result/batch" -threads 4
+java -jar traprange.lastest.jar -in "$home/sample-*.pdf" -out "$home/result/batch" -f csv